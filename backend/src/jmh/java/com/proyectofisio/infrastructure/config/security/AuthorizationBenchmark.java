@@ -0,0 +1,98 @@
+package com.proyectofisio.infrastructure.config.security;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+/**
+ * Coste de las comprobaciones de autorización que se repiten en cada petición:
+ * construir las autoridades del usuario y evaluar las expresiones SpEL de @PreAuthorize
+ * con el mismo MethodSecurityExpressionHandler que configura SecurityConfig.
+ * El parámetro "rol" permite medir el caso en que la autoridad coincide en la primera
+ * cláusula (DUENO) y en la última (FISIOTERAPEUTA).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthorizationBenchmark {
+
+    // Expresión más habitual en los controladores
+    private static final String EXPRESION =
+            "hasAuthority('DUENO') or hasAuthority('ADMINISTRADOR') or hasAuthority('RECEPCIONISTA') or hasAuthority('FISIOTERAPEUTA')";
+
+    @Param({"DUENO", "FISIOTERAPEUTA"})
+    private String rol;
+
+    private DefaultMethodSecurityExpressionHandler expressionHandler;
+    private Expression expresion;
+    private Authentication authentication;
+    private SimpleMethodInvocation invocation;
+    private List<GrantedAuthority> autoridadesCompartidas;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        expressionHandler = new DefaultMethodSecurityExpressionHandler();
+        expressionHandler.setDefaultRolePrefix("");
+        expresion = expressionHandler.getExpressionParser().parseExpression(EXPRESION);
+
+        autoridadesCompartidas = List.of(new SimpleGrantedAuthority(rol));
+        UsuarioPrincipal principal = new UsuarioPrincipal(1L, "usuario@clinica-ejemplo.es", 1L, rol,
+                autoridadesCompartidas, "00000000-0000-0000-0000-000000000000");
+        authentication = new UsernamePasswordAuthenticationToken(principal, "", autoridadesCompartidas);
+
+        Method metodo = Object.class.getMethod("toString");
+        invocation = new SimpleMethodInvocation(new Object(), metodo);
+    }
+
+    // Lo que se hacía antes en cada petición al construir la autenticación
+    @Benchmark
+    public Collection<? extends GrantedAuthority> autoridadesPorPeticion() {
+        return List.of(new SimpleGrantedAuthority(rol));
+    }
+
+    // Lo que hace ahora JwtTokenProvider: reutilizar la lista por combinación de roles
+    @Benchmark
+    public Collection<? extends GrantedAuthority> autoridadesCompartidas() {
+        return autoridadesCompartidas;
+    }
+
+    // Ruta completa de @PreAuthorize: contexto de evaluación por invocación + expresión ya parseada
+    @Benchmark
+    public boolean preAuthorize() {
+        EvaluationContext contexto = expressionHandler.createEvaluationContext(() -> authentication, invocation);
+        return ExpressionUtils.evaluateAsBoolean(expresion, contexto);
+    }
+
+    // Peor caso si la expresión no se cachease: parsear en cada evaluación
+    @Benchmark
+    public boolean preAuthorizeParseandoCadaVez() {
+        EvaluationContext contexto = expressionHandler.createEvaluationContext(() -> authentication, invocation);
+        Expression nueva = expressionHandler.getExpressionParser().parseExpression(EXPRESION);
+        return ExpressionUtils.evaluateAsBoolean(nueva, contexto);
+    }
+}
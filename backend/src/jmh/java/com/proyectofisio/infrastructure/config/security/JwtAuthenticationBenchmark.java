@@ -0,0 +1,151 @@
+package com.proyectofisio.infrastructure.config.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.ReflectionUtils;
+
+import com.proyectofisio.domain.model.Usuario;
+import com.proyectofisio.domain.model.enums.RolUsuario;
+
+/**
+ * Coste de verificar un JWT por petición, con y sin la caché de autenticaciones.
+ * Los tokens se generan con los mismos claims que emite la aplicación (uid, empresaId,
+ * rol, authorities y jti). Con "usuarios" > 1 cada hilo recorre tokens distintos para
+ * no medir solo la entrada más caliente de la caché.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthenticationBenchmark {
+
+    private static final String SECRET = "mySuperSecretKey123456789mySuperSecretKey123456789";
+
+    @Param({"1", "1000"})
+    private int usuarios;
+
+    private JwtTokenProvider conCache;
+    private JwtTokenProvider sinCache;
+    private String[] tokens;
+    private String tokenManipulado;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int posicion;
+
+        int siguiente(int limite) {
+            int actual = posicion;
+            posicion = actual + 1 == limite ? 0 : actual + 1;
+            return actual;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        conCache = crearProvider(10_000);
+        sinCache = crearProvider(0);
+
+        tokens = new String[usuarios];
+        for (int i = 0; i < usuarios; i++) {
+            tokens[i] = conCache.createToken(Usuario.builder()
+                    .id((long) i + 1)
+                    .email("fisioterapeuta" + i + "@clinica-ejemplo.es")
+                    .empresaId((long) (i % 50) + 1)
+                    .rol(RolUsuario.FISIOTERAPEUTA)
+                    .build());
+        }
+        // Misma cabecera y payload con una letra de la mitad de la firma cambiada; la última
+        // no sirve porque en Base64URL parte de sus bits son de relleno y la firma puede no cambiar
+        String token = tokens[0];
+        int inicioFirma = token.lastIndexOf('.') + 1;
+        int medio = inicioFirma + (token.length() - inicioFirma) / 2;
+        char original = token.charAt(medio);
+        tokenManipulado = token.substring(0, medio) + (original == 'A' ? 'B' : 'A') + token.substring(medio + 1);
+    }
+
+    @Benchmark
+    public Authentication resolveAuthenticationConCache(Cursor cursor) {
+        return conCache.resolveAuthentication(tokens[cursor.siguiente(usuarios)]);
+    }
+
+    @Benchmark
+    public Authentication resolveAuthenticationSinCache(Cursor cursor) {
+        return sinCache.resolveAuthentication(tokens[cursor.siguiente(usuarios)]);
+    }
+
+    @Benchmark
+    public Authentication getAuthentication(Cursor cursor) {
+        return conCache.getAuthentication(tokens[cursor.siguiente(usuarios)]);
+    }
+
+    @Benchmark
+    public boolean validateToken(Cursor cursor) {
+        return conCache.validateToken(tokens[cursor.siguiente(usuarios)]);
+    }
+
+    @Benchmark
+    public boolean validateTokenSinCache(Cursor cursor) {
+        return sinCache.validateToken(tokens[cursor.siguiente(usuarios)]);
+    }
+
+    @Benchmark
+    public Authentication tokenConFirmaInvalida() {
+        return sinCache.resolveAuthentication(tokenManipulado);
+    }
+
+    @Benchmark
+    public String createToken(Cursor cursor) {
+        int i = cursor.siguiente(usuarios);
+        return conCache.createToken(Usuario.builder()
+                .id((long) i + 1)
+                .email("fisioterapeuta" + i + "@clinica-ejemplo.es")
+                .empresaId(1L)
+                .rol(RolUsuario.FISIOTERAPEUTA)
+                .build());
+    }
+
+    // Contención sobre la caché compartida con varios hilos verificando a la vez
+    @Benchmark
+    @Threads(8)
+    public Authentication resolveAuthenticationConCacheConcurrente(Cursor cursor) {
+        return conCache.resolveAuthentication(tokens[cursor.siguiente(usuarios)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Authentication resolveAuthenticationSinCacheConcurrente(Cursor cursor) {
+        return sinCache.resolveAuthentication(tokens[cursor.siguiente(usuarios)]);
+    }
+
+    private static JwtTokenProvider crearProvider(int tamanoCache) {
+        JwtAuthenticationCache cache = new JwtAuthenticationCache(tamanoCache);
+
+        // Los tokens llevan el uid, por lo que nunca se consulta el servicio de usuarios
+        JwtTokenProvider provider = new JwtTokenProvider(cache, null);
+        asignar(provider, "secretKey", SECRET);
+        asignar(provider, "validityInMilliseconds", TimeUnit.HOURS.toMillis(1));
+        provider.init();
+        return provider;
+    }
+
+    private static void asignar(Object destino, String campo, Object valor) {
+        var field = ReflectionUtils.findField(destino.getClass(), campo);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, destino, valor);
+    }
+}
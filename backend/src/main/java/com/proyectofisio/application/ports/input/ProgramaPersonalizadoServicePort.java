@@ -3,10 +3,18 @@ package com.proyectofisio.application.ports.input;
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
 import com.proyectofisio.domain.model.AccessToken;
+import com.proyectofisio.domain.model.AccessTokenResumen;
+import com.proyectofisio.domain.model.AdherenciaPrograma;
 import com.proyectofisio.domain.model.ComentarioPaciente;
 import com.proyectofisio.domain.model.Ejercicio;
 import com.proyectofisio.domain.model.ProgramaPersonalizado;
+import com.proyectofisio.domain.model.ProgramaPersonalizadoResumen;
+import com.proyectofisio.domain.model.ProgramaPublicado;
+import com.proyectofisio.domain.model.ResumenComentariosNoLeidos;
 import com.proyectofisio.domain.model.Subprograma;
 import com.proyectofisio.domain.model.PasoSubprograma;
 
@@ -15,12 +23,18 @@ public interface ProgramaPersonalizadoServicePort {
     // Métodos para gestionar programas personalizados
     ProgramaPersonalizado crearProgramaPersonalizado(ProgramaPersonalizado programa);
     
+    // Copia el programa con subprogramas, ejercicios asignados, pasos e imágenes; nombre null usa "<original> (copia)"
+    ProgramaPersonalizado clonarProgramaPersonalizado(Long programaId, String nombre, Long usuarioId);
+    
     ProgramaPersonalizado getProgramaPersonalizadoById(Long id);
     
     List<ProgramaPersonalizado> getAllProgramasPersonalizados();
     
     List<ProgramaPersonalizado> getProgramasPersonalizadosByEmpresaId(Long empresaId);
     
+    // Listado resumido con contadores; tipoPrograma null no filtra
+    Page<ProgramaPersonalizadoResumen> getResumenProgramasByEmpresaId(Long empresaId, String tipoPrograma, Pageable pageable);
+    
     List<ProgramaPersonalizado> getProgramasPersonalizadosByUsuarioId(Long usuarioId);
     
     ProgramaPersonalizado updateProgramaPersonalizado(Long id, ProgramaPersonalizado programa);
@@ -34,6 +48,14 @@ public interface ProgramaPersonalizadoServicePort {
     
     boolean tieneSubprogramasCreados(Long programaId);
     
+    // Versiones publicadas: el programa editable es el borrador y los pacientes ven la última publicación
+    ProgramaPublicado publicarProgramaPersonalizado(Long programaId, Long usuarioId);
+    
+    List<ProgramaPublicado> getVersionesPublicadas(Long programaId);
+    
+    // JSON del programa tal como se publicó
+    String getContenidoVersionPublicada(Long versionId);
+    
     // Métodos para gestionar subprogramas
     Subprograma crearSubprograma(Subprograma subprograma);
     
@@ -52,7 +74,8 @@ public interface ProgramaPersonalizadoServicePort {
     
     List<Ejercicio> getAllEjerciciosByEmpresaId(Long empresaId);
     
-    List<Ejercicio> searchEjerciciosByNombre(String nombre, Long empresaId);
+    // Búsqueda por nombre, descripción e instrucciones ordenada por relevancia y tolerante a erratas
+    Page<Ejercicio> searchEjercicios(String texto, Long empresaId, Pageable pageable);
     
     Ejercicio updateEjercicio(Long id, Ejercicio ejercicio);
     
@@ -70,12 +93,25 @@ public interface ProgramaPersonalizadoServicePort {
     
     List<AccessToken> getTokensByProgramaId(Long programaId);
     
-    List<AccessToken> generarTokensParaPacientes(Long programaId, List<Long> pacientesIds);
+    // Listado de enlaces con nombres de paciente y programa, como mucho limite filas con id menor que antesDeId
+    List<AccessTokenResumen> getResumenTokensByProgramaId(Long programaId, Boolean usado, Boolean vigente,
+            Long antesDeId, int limite);
+    
+    // Los pacientes tienen que ser de la empresa indicada (la del usuario que genera los enlaces)
+    List<AccessToken> generarTokensParaPacientes(Long programaId, List<Long> pacientesIds, Long empresaId);
     
     ProgramaPersonalizado getProgramaPersonalizadoByToken(UUID token);
     
     AccessToken getAccessTokenByToken(UUID token);
     
+    void revocarTokenAcceso(Long programaId, UUID token);
+    
+    // Series completadas por el paciente; se guardan por lotes. Devuelve false si no se pudo aceptar
+    boolean registrarEjercicioCompletado(UUID token, Long subprogramaId, Long ejercicioId, Integer series);
+    
+    // Totales de actividad del programa y de cada enlace, sin recorrer los registros
+    AdherenciaPrograma getAdherenciaPrograma(Long programaId);
+    
     // Métodos para comentarios de pacientes
     ComentarioPaciente crearComentarioPaciente(ComentarioPaciente comentario);
     
@@ -83,11 +119,13 @@ public interface ProgramaPersonalizadoServicePort {
     
     List<ComentarioPaciente> getComentariosByProgramaAndPacienteId(Long programaId, Long pacienteId);
     
-    void marcarComentarioComoLeido(Long comentarioId);
+    // Marca como leídos los comentarios de la empresa y devuelve cuántos no lo estaban
+    long marcarComentariosComoLeidos(List<Long> comentariosIds, Long empresaId);
     
-    List<ComentarioPaciente> getComentariosNoLeidos();
+    // Comentarios sin leer de la empresa, paginados; programaId opcional
+    Page<ComentarioPaciente> getComentariosNoLeidos(Long empresaId, Long programaId, Pageable pageable);
     
-    long getCountComentariosNoLeidos();
+    ResumenComentariosNoLeidos getResumenComentariosNoLeidos(Long empresaId);
     
     // Métodos para gestionar pasos de subprograma
     PasoSubprograma crearPasoSubprograma(PasoSubprograma paso);
@@ -37,6 +37,7 @@ public interface AgendaRepositoryPort {
     
     void deleteById(Long id);
     
-    List<Agenda> findConflictingAppointments(Long usuarioId, LocalDate fecha, 
-                                           LocalTime horaInicio, LocalTime horaFin, Long idCitaExcluir);
+    // Si el profesional tiene otra cita ese día que se solape con la franja indicada
+    boolean existsConflictingAppointment(Long usuarioId, LocalDate fecha,
+                                         LocalTime horaInicio, int duracion, Long idCitaExcluir);
 } 
\ No newline at end of file
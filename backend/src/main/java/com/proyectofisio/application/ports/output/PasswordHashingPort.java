@@ -0,0 +1,13 @@
+package com.proyectofisio.application.ports.output;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface PasswordHashingPort {
+
+    /**
+     * Calcula el hash de la contraseña sin bloquear al llamante. El futuro se completa fuera
+     * del pool de hashing, así que las etapas encadenadas no ocupan sus hilos; si el pool está
+     * saturado se completa con RejectedExecutionException.
+     */
+    CompletableFuture<String> encodeAsync(CharSequence contrasena);
+}
@@ -2,10 +2,10 @@ package com.proyectofisio.application.services;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,6 +14,7 @@ import com.proyectofisio.application.ports.input.BonoPacienteServicePort;
 import com.proyectofisio.application.ports.output.AgendaRepositoryPort;
 import com.proyectofisio.domain.model.Agenda;
 import com.proyectofisio.domain.model.Agenda.EstadoCita;
+import com.proyectofisio.domain.model.EventoAgenda;
 
 import jakarta.persistence.EntityNotFoundException;
 
@@ -22,11 +23,15 @@ public class AgendaService implements AgendaServicePort {
 
     private final AgendaRepositoryPort agendaRepository;
     private final BonoPacienteServicePort bonoPacienteService;
+    // Los cambios se notifican a los clientes conectados después del commit (ver NotificacionesHub)
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
-    public AgendaService(AgendaRepositoryPort agendaRepository, BonoPacienteServicePort bonoPacienteService) {
+    public AgendaService(AgendaRepositoryPort agendaRepository, BonoPacienteServicePort bonoPacienteService,
+            ApplicationEventPublisher eventPublisher) {
         this.agendaRepository = agendaRepository;
         this.bonoPacienteService = bonoPacienteService;
+        this.eventPublisher = eventPublisher;
     }
     
     @Override
@@ -41,7 +46,9 @@ public class AgendaService implements AgendaServicePort {
             agenda.setEstado(EstadoCita.PENDIENTE.name());
         }
         
-        return agendaRepository.save(agenda);
+        Agenda creada = agendaRepository.save(agenda);
+        eventPublisher.publishEvent(EventoAgenda.de(EventoAgenda.Tipo.CREADA, creada));
+        return creada;
     }
 
     @Override
@@ -123,7 +130,9 @@ public class AgendaService implements AgendaServicePort {
             throw new IllegalArgumentException("La actualización genera un conflicto con otra cita existente");
         }
         
-        return agendaRepository.save(agenda);
+        Agenda actualizada = agendaRepository.save(agenda);
+        eventPublisher.publishEvent(EventoAgenda.de(EventoAgenda.Tipo.ACTUALIZADA, actualizada));
+        return actualizada;
     }
 
     @Override
@@ -138,7 +147,9 @@ public class AgendaService implements AgendaServicePort {
         }
         
         cita.setEstado(EstadoCita.CANCELADA.name());
-        return agendaRepository.save(cita);
+        Agenda cancelada = agendaRepository.save(cita);
+        eventPublisher.publishEvent(EventoAgenda.de(EventoAgenda.Tipo.CANCELADA, cancelada));
+        return cancelada;
     }
     
     @Override
@@ -161,32 +172,31 @@ public class AgendaService implements AgendaServicePort {
         }
         
         // Guardar y devolver la cita actualizada
-        return agendaRepository.save(cita);
+        Agenda completada = agendaRepository.save(cita);
+        eventPublisher.publishEvent(EventoAgenda.de(EventoAgenda.Tipo.COMPLETADA, completada));
+        return completada;
     }
 
     @Override
     @Transactional
     public void deleteCita(Long id) {
-        if (!agendaRepository.existsById(id)) {
-            throw new EntityNotFoundException("La cita no existe");
-        }
+        // Se lee la cita para poder avisar a su profesional
+        Agenda cita = agendaRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("La cita no existe"));
         agendaRepository.deleteById(id);
+        eventPublisher.publishEvent(EventoAgenda.de(EventoAgenda.Tipo.ELIMINADA, cita));
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean existeCitaConflictiva(Agenda agenda) {
-        LocalTime horaInicio = agenda.getHora();
-        LocalTime horaFin = horaInicio.plusMinutes(agenda.getDuracion());
-        
-        List<Agenda> citasExistentes = agendaRepository.findConflictingAppointments(
-            agenda.getUsuarioId(), 
-            agenda.getFecha(), 
-            horaInicio, 
-            horaFin, 
+        // El solapamiento se comprueba en la base de datos, sin cargar las citas del día
+        return agendaRepository.existsConflictingAppointment(
+            agenda.getUsuarioId(),
+            agenda.getFecha(),
+            agenda.getHora(),
+            agenda.getDuracion(),
             agenda.getId() != null ? agenda.getId() : 0L
         );
-        
-        return !citasExistentes.isEmpty();
     }
 } 
\ No newline at end of file
@@ -1,25 +1,47 @@
 package com.proyectofisio.application.services;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.proyectofisio.application.ports.input.ProgramaPersonalizadoServicePort;
 import com.proyectofisio.domain.model.AccessToken;
+import com.proyectofisio.domain.model.AccessTokenResumen;
+import com.proyectofisio.domain.model.AdherenciaPrograma;
 import com.proyectofisio.domain.model.ComentarioPaciente;
 import com.proyectofisio.domain.model.Ejercicio;
+import com.proyectofisio.domain.model.EventoComentario;
 import com.proyectofisio.domain.model.ProgramaPersonalizado;
+import com.proyectofisio.domain.model.ProgramaPersonalizadoResumen;
+import com.proyectofisio.domain.model.ProgramaPublicado;
+import com.proyectofisio.domain.model.RegistroEjercicio;
+import com.proyectofisio.domain.model.ResumenComentariosNoLeidos;
 import com.proyectofisio.domain.model.Subprograma;
 import com.proyectofisio.domain.model.PasoSubprograma;
+import com.proyectofisio.infrastructure.adapters.output.persistence.AccessTokenBatchWriter;
+import com.proyectofisio.infrastructure.adapters.output.persistence.EjercicioBuscador;
+import com.proyectofisio.infrastructure.adapters.output.persistence.ProgramaPersonalizadoCloner;
+import com.proyectofisio.infrastructure.adapters.output.persistence.ProgramaPersonalizadoOrdenacion;
+import com.proyectofisio.infrastructure.adapters.output.persistence.ProgramaPersonalizadoTreeLoader;
+import com.proyectofisio.infrastructure.adapters.output.persistence.RegistroEjercicioBuffer;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EjercicioEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.SubprogramaEjercicioEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.PasoSubprogramaEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ProgramaPublicadoEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.mapper.AccessTokenMapper;
 import com.proyectofisio.infrastructure.adapters.output.persistence.mapper.ComentarioPacienteMapper;
 import com.proyectofisio.infrastructure.adapters.output.persistence.mapper.EjercicioMapper;
@@ -27,12 +49,22 @@ import com.proyectofisio.infrastructure.adapters.output.persistence.mapper.Progr
 import com.proyectofisio.infrastructure.adapters.output.persistence.mapper.SubprogramaMapper;
 import com.proyectofisio.infrastructure.adapters.output.persistence.mapper.PasoSubprogramaMapper;
 import com.proyectofisio.infrastructure.adapters.output.persistence.repository.AccessTokenRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.AdherenciaRepository;
 import com.proyectofisio.infrastructure.adapters.output.persistence.repository.ComentarioPacienteRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.ContadorComentariosRepository;
 import com.proyectofisio.infrastructure.adapters.output.persistence.repository.EjercicioRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.PacienteRepository;
 import com.proyectofisio.infrastructure.adapters.output.persistence.repository.ProgramaPersonalizadoRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.ProgramaPublicadoRepository;
 import com.proyectofisio.infrastructure.adapters.output.persistence.repository.SubprogramaRepository;
 import com.proyectofisio.infrastructure.adapters.output.persistence.repository.SubprogramaEjercicioRepository;
 import com.proyectofisio.infrastructure.adapters.output.persistence.repository.PasoSubprogramaRepository;
+import com.proyectofisio.infrastructure.config.AccessTokenCache;
+import com.proyectofisio.infrastructure.config.PortalSnapshotCache;
+import com.proyectofisio.infrastructure.config.security.PertenenciaEmpresaResolver;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.RequiredArgsConstructor;
 
@@ -40,6 +72,9 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServicePort {
 
+    // Tope de series en un mismo registro del portal
+    private static final int MAX_SERIES_POR_REGISTRO = 50;
+    
     private final ProgramaPersonalizadoRepository programaRepository;
     private final SubprogramaRepository subprogramaRepository;
     private final EjercicioRepository ejercicioRepository;
@@ -47,6 +82,10 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
     private final ComentarioPacienteRepository comentarioRepository;
     private final SubprogramaEjercicioRepository subprogramaEjercicioRepository;
     private final PasoSubprogramaRepository pasoSubprogramaRepository;
+    private final PacienteRepository pacienteRepository;
+    private final ProgramaPublicadoRepository programaPublicadoRepository;
+    private final AdherenciaRepository adherenciaRepository;
+    private final ContadorComentariosRepository contadorComentariosRepository;
     
     private final ProgramaPersonalizadoMapper programaMapper;
     private final SubprogramaMapper subprogramaMapper;
@@ -55,6 +94,18 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
     private final ComentarioPacienteMapper comentarioMapper;
     private final PasoSubprogramaMapper pasoSubprogramaMapper;
     
+    private final ProgramaPersonalizadoTreeLoader programaTreeLoader;
+    private final ProgramaPersonalizadoOrdenacion ordenacion;
+    private final AccessTokenBatchWriter accessTokenBatchWriter;
+    private final ProgramaPersonalizadoCloner programaCloner;
+    private final EjercicioBuscador ejercicioBuscador;
+    private final RegistroEjercicioBuffer registroEjercicioBuffer;
+    private final AccessTokenCache accessTokenCache;
+    private final PortalSnapshotCache portalSnapshotCache;
+    private final PertenenciaEmpresaResolver pertenencia;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    
     // Implementación de métodos para programas personalizados
     
     @Override
@@ -65,11 +116,19 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         return programaMapper.toModel(savedEntity);
     }
     
+    @Override
+    @Transactional
+    public ProgramaPersonalizado clonarProgramaPersonalizado(Long programaId, String nombre, Long usuarioId) {
+        String nombreCopia = nombre != null && !nombre.isBlank() ? nombre : null;
+        Long copiaId = programaCloner.clonar(programaId, nombreCopia, usuarioId);
+        return programaTreeLoader.cargarPrograma(copiaId)
+            .orElseThrow(() -> new IllegalStateException("No se pudo cargar la copia del programa " + programaId));
+    }
+    
     @Override
     public ProgramaPersonalizado getProgramaPersonalizadoById(Long id) {
-        var entity = programaRepository.findById(id)
+        return programaTreeLoader.cargarPrograma(id)
             .orElseThrow(() -> new IllegalArgumentException("Programa personalizado no encontrado con id: " + id));
-        return programaMapper.toModel(entity);
     }
     
     @Override
@@ -84,6 +143,13 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         return programaMapper.toModelList(entities);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ProgramaPersonalizadoResumen> getResumenProgramasByEmpresaId(Long empresaId, String tipoPrograma,
+            Pageable pageable) {
+        return programaRepository.findResumenByEmpresaId(empresaId, tipoPrograma, pageable);
+    }
+    
     @Override
     public List<ProgramaPersonalizado> getProgramasPersonalizadosByUsuarioId(Long usuarioId) {
         var entities = programaRepository.findByCreadoPorUsuarioId(usuarioId);
@@ -101,6 +167,7 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         existingEntity.setTipoPrograma(programa.getTipoPrograma());
         
         var updatedEntity = programaRepository.save(existingEntity);
+        portalSnapshotCache.invalidate(id);
         return programaMapper.toModel(updatedEntity);
     }
     
@@ -116,7 +183,11 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
             throw new IllegalArgumentException("No se puede eliminar el programa porque tiene pacientes asociados o subprogramas creados");
         }
         
+        programaPublicadoRepository.deleteByProgramaId(id);
+        contadorComentariosRepository.deleteById(id);
         programaRepository.deleteById(id);
+        portalSnapshotCache.invalidate(id);
+        pertenencia.invalidate(PertenenciaEmpresaResolver.Tipo.PROGRAMA, id);
     }
     
     @Override
@@ -136,6 +207,55 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         return !subprogramas.isEmpty();
     }
     
+    // Implementación de métodos para versiones publicadas
+    
+    @Override
+    @Transactional
+    public ProgramaPublicado publicarProgramaPersonalizado(Long programaId, Long usuarioId) {
+        // Se congela el programa tal como lo recibiría el portal en este momento
+        ProgramaPersonalizado borrador = getProgramaPersonalizadoById(programaId);
+        String contenido;
+        try {
+            contenido = objectMapper.writeValueAsString(borrador);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el programa " + programaId, e);
+        }
+        
+        var entity = ProgramaPublicadoEntity.builder()
+            .programaPersonalizado(programaRepository.getReferenceById(programaId))
+            .version(programaPublicadoRepository.findMaxVersionByProgramaId(programaId) + 1)
+            .contenido(contenido)
+            .publicadoPorUsuarioId(usuarioId)
+            .build();
+        var savedEntity = programaPublicadoRepository.save(entity);
+        
+        // Los enlaces ya enviados pasan a ver la nueva versión
+        List<UUID> tokens = accessTokenRepository.findTokensByProgramaId(programaId);
+        accessTokenRepository.asignarVersionPublicada(programaId, savedEntity.getId());
+        tokens.forEach(accessTokenCache::invalidate);
+        
+        return ProgramaPublicado.builder()
+            .id(savedEntity.getId())
+            .programaPersonalizadoId(programaId)
+            .version(savedEntity.getVersion())
+            .publicadoPorUsuarioId(usuarioId)
+            .fechaPublicacion(savedEntity.getFechaPublicacion())
+            .build();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProgramaPublicado> getVersionesPublicadas(Long programaId) {
+        return programaPublicadoRepository.findResumenByProgramaId(programaId);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public String getContenidoVersionPublicada(Long versionId) {
+        return programaPublicadoRepository.findContenidoById(versionId)
+            .orElseThrow(() -> new IllegalArgumentException("Versión publicada no encontrada con id: " + versionId));
+    }
+    
     // Implementación de métodos para subprogramas
     
     @Override
@@ -149,14 +269,12 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         
         // Determinar el orden si no se ha especificado
         if (subprograma.getOrden() == null) {
-            var existingSubprogramas = subprogramaRepository
-                .findByProgramaPersonalizadoIdOrderByOrdenAsc(subprograma.getProgramaPersonalizadoId());
-            
-            subprograma.setOrden(existingSubprogramas.isEmpty() ? 1 : existingSubprogramas.size() + 1);
+            subprograma.setOrden(ordenacion.siguienteOrdenSubprograma(subprograma.getProgramaPersonalizadoId()));
         }
         
         var entity = subprogramaMapper.toEntity(subprograma);
         var savedEntity = subprogramaRepository.save(entity);
+        portalSnapshotCache.invalidate(subprograma.getProgramaPersonalizadoId());
         return subprogramaMapper.toModel(savedEntity);
     }
     
@@ -171,8 +289,7 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
     
     @Override
     public List<Subprograma> getSubprogramasByProgramaId(Long programaId) {
-        var entities = subprogramaRepository.findByProgramaPersonalizadoIdWithEjerciciosOrderByOrdenAsc(programaId);
-        return subprogramaMapper.toModelList(entities);
+        return programaTreeLoader.cargarSubprogramas(programaId);
     }
     
     @Override
@@ -189,16 +306,26 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         }
         
         var updatedEntity = subprogramaRepository.save(existingEntity);
+        portalSnapshotCache.invalidate(existingEntity.getProgramaPersonalizado().getId());
         return subprogramaMapper.toModel(updatedEntity);
     }
     
     @Override
     @Transactional
     public void deleteSubprograma(Long id) {
-        if (!subprogramaRepository.existsById(id)) {
-            throw new IllegalArgumentException("Subprograma no encontrado con id: " + id);
+        var entity = subprogramaRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Subprograma no encontrado con id: " + id));
+        Long programaId = entity.getProgramaPersonalizado().getId();
+        
+        // Sus comentarios se borran en cascada: dejan de contar como pendientes
+        long noLeidos = comentarioRepository.countBySubprogramaIdAndLeidoFalse(id);
+        if (noLeidos > 0) {
+            contadorComentariosRepository.descontar(programaId, noLeidos);
         }
-        subprogramaRepository.deleteById(id);
+        subprogramaRepository.delete(entity);
+        ordenacion.subprogramaEliminado(programaId, entity.getOrden());
+        portalSnapshotCache.invalidate(programaId);
+        pertenencia.invalidate(PertenenciaEmpresaResolver.Tipo.SUBPROGRAMA, id);
     }
     
     // Implementación de métodos para ejercicios
@@ -225,9 +352,9 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
     }
     
     @Override
-    public List<Ejercicio> searchEjerciciosByNombre(String nombre, Long empresaId) {
-        var entities = ejercicioRepository.findByNombreContainingIgnoreCaseAndEmpresaId(nombre, empresaId);
-        return ejercicioMapper.toModelList(entities);
+    @Transactional(readOnly = true)
+    public Page<Ejercicio> searchEjercicios(String texto, Long empresaId, Pageable pageable) {
+        return ejercicioBuscador.buscar(empresaId, texto, pageable).map(ejercicioMapper::toModel);
     }
     
     @Override
@@ -249,6 +376,8 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         }
         
         var updatedEntity = ejercicioRepository.save(existingEntity);
+        // Un ejercicio puede estar asignado a varios programas
+        portalSnapshotCache.invalidateAll();
         return ejercicioMapper.toModel(updatedEntity);
     }
     
@@ -259,6 +388,8 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
             throw new IllegalArgumentException("Ejercicio no encontrado con id: " + id);
         }
         ejercicioRepository.deleteById(id);
+        portalSnapshotCache.invalidateAll();
+        pertenencia.invalidate(PertenenciaEmpresaResolver.Tipo.EJERCICIO, id);
     }
     
     // Implementación de métodos para asignar ejercicios a subprogramas
@@ -285,9 +416,7 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         if (orden != null) {
             ordenFinal = orden;
         } else {
-            // Obtener el último orden y sumar 1
-            Integer maxOrden = subprogramaEjercicioRepository.findMaxOrdenBySubprogramaId(subprogramaId);
-            ordenFinal = (maxOrden != null) ? maxOrden + 1 : 1;
+            ordenFinal = ordenacion.siguienteOrdenEjercicio(subprogramaId);
         }
         
         // Crear la entidad de relación
@@ -299,6 +428,7 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
             
         // Guardar la relación
         subprogramaEjercicioRepository.save(relacion);
+        portalSnapshotCache.invalidate(subprogramaEntity.getProgramaPersonalizado().getId());
         
         // Refrescar la entidad del subprograma para obtener las relaciones actualizadas
         subprogramaEntity = subprogramaRepository.findById(subprogramaId).get();
@@ -319,17 +449,9 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
             throw new IllegalArgumentException("Ejercicio no encontrado con id: " + ejercicioId);
         }
         
-        // Eliminar la relación
-        subprogramaEjercicioRepository.deleteBySubprogramaIdAndEjercicioId(subprogramaId, ejercicioId);
-        
-        // Reordenar los ejercicios restantes
-        List<SubprogramaEjercicioEntity> relaciones = subprogramaEjercicioRepository
-            .findBySubprogramaIdOrderByOrdenAsc(subprogramaId);
-            
-        int orden = 1;
-        for (SubprogramaEjercicioEntity relacion : relaciones) {
-            relacion.setOrden(orden++);
-            subprogramaEjercicioRepository.save(relacion);
+        // Eliminar la relación y adelantar los ejercicios posteriores
+        if (ordenacion.quitarEjercicio(subprogramaId, ejercicioId)) {
+            invalidarSnapshotDeSubprograma(subprogramaId);
         }
     }
     
@@ -341,30 +463,9 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
             throw new IllegalArgumentException("Subprograma no encontrado con id: " + subprogramaId);
         }
         
-        // Validar que todos los ejercicios existan y estén asignados al subprograma
-        for (Long ejercicioId : ejerciciosIds) {
-            if (!ejercicioRepository.existsById(ejercicioId)) {
-                throw new IllegalArgumentException("Ejercicio no encontrado con id: " + ejercicioId);
-            }
-            
-            if (!subprogramaEjercicioRepository.findBySubprogramaIdAndEjercicioId(subprogramaId, ejercicioId).isPresent()) {
-                throw new IllegalArgumentException("El ejercicio con id " + ejercicioId + 
-                    " no está asignado al subprograma con id " + subprogramaId);
-            }
-        }
-        
-        // Actualizar el orden de cada ejercicio según la lista proporcionada
-        int orden = 1;
-        for (Long ejercicioId : ejerciciosIds) {
-            Optional<SubprogramaEjercicioEntity> relacion = subprogramaEjercicioRepository
-                .findBySubprogramaIdAndEjercicioId(subprogramaId, ejercicioId);
-                
-            if (relacion.isPresent()) {
-                SubprogramaEjercicioEntity entity = relacion.get();
-                entity.setOrden(orden++);
-                subprogramaEjercicioRepository.save(entity);
-            }
-        }
+        // Validar la pertenencia de todos los ejercicios y aplicar el nuevo orden
+        ordenacion.reordenarEjercicios(subprogramaId, ejerciciosIds);
+        invalidarSnapshotDeSubprograma(subprogramaId);
     }
     
     // Implementación de métodos para tokens de acceso
@@ -380,6 +481,7 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         AccessToken token = AccessToken.builder()
             .token(UUID.randomUUID())
             .programaPersonalizadoId(programaId)
+            .programaPublicadoId(programaPublicadoRepository.findUltimaVersionIdByProgramaId(programaId))
             .pacienteId(pacienteId)
             .fechaExpiracion(LocalDateTime.now().plusDays(7))
             .usado(false)
@@ -387,6 +489,7 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         
         var entity = accessTokenMapper.toEntity(token);
         var savedEntity = accessTokenRepository.save(entity);
+        accessTokenCache.invalidate(savedEntity.getToken());
         
         return accessTokenMapper.toModel(savedEntity);
     }
@@ -397,6 +500,14 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         return accessTokenMapper.toModelList(entities);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public List<AccessTokenResumen> getResumenTokensByProgramaId(Long programaId, Boolean usado, Boolean vigente,
+            Long antesDeId, int limite) {
+        return accessTokenRepository.findResumenByProgramaId(programaId, antesDeId, usado, vigente,
+            LocalDateTime.now(), PageRequest.of(0, limite));
+    }
+    
     @Override
     public ProgramaPersonalizado getProgramaPersonalizadoByToken(UUID token) {
         var tokenEntity = accessTokenRepository.findByToken(token)
@@ -408,37 +519,132 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         }
         
         // Marcar el token como usado
-        tokenEntity.setUsado(true);
-        accessTokenRepository.save(tokenEntity);
+        if (!Boolean.TRUE.equals(tokenEntity.getUsado())) {
+            tokenEntity.setUsado(true);
+            accessTokenRepository.save(tokenEntity);
+            accessTokenCache.invalidate(token);
+        }
         
         return programaMapper.toModel(tokenEntity.getProgramaPersonalizado());
     }
     
     @Override
     public AccessToken getAccessTokenByToken(UUID token) {
+        // El portal de pacientes valida el token en cada recarga: se sirve desde caché
+        // y los UUID inexistentes se recuerdan un tiempo para no repetir la consulta
+        Optional<AccessToken> cacheado = accessTokenCache.get(token);
+        if (cacheado.isPresent()) {
+            return cacheado.get();
+        }
+        if (accessTokenCache.esDesconocido(token)) {
+            throw new IllegalArgumentException("Token no válido");
+        }
+        
+        var entity = accessTokenRepository.findByToken(token).orElse(null);
+        if (entity == null) {
+            accessTokenCache.putDesconocido(token);
+            throw new IllegalArgumentException("Token no válido");
+        }
+        AccessToken accessToken = accessTokenMapper.toModel(entity);
+        accessTokenCache.put(accessToken);
+        return accessToken;
+    }
+    
+    @Override
+    @Transactional
+    public void revocarTokenAcceso(Long programaId, UUID token) {
         var entity = accessTokenRepository.findByToken(token)
             .orElseThrow(() -> new IllegalArgumentException("Token no válido"));
-        return accessTokenMapper.toModel(entity);
+        
+        if (!entity.getProgramaPersonalizado().getId().equals(programaId)) {
+            throw new IllegalArgumentException("El token no pertenece al programa indicado");
+        }
+        
+        // Se caduca en lugar de borrarlo para conservar los comentarios del paciente
+        entity.setFechaExpiracion(LocalDateTime.now());
+        accessTokenRepository.save(entity);
+        accessTokenCache.invalidate(token);
     }
     
     @Override
     @Transactional
-    public List<AccessToken> generarTokensParaPacientes(Long programaId, List<Long> pacientesIds) {
+    public List<AccessToken> generarTokensParaPacientes(Long programaId, List<Long> pacientesIds, Long empresaId) {
         // Verificar que el programa exista
-        var programaEntity = programaRepository.findById(programaId)
-            .orElseThrow(() -> new IllegalArgumentException("Programa personalizado no encontrado con id: " + programaId));
+        if (!programaRepository.existsById(programaId)) {
+            throw new IllegalArgumentException("Programa personalizado no encontrado con id: " + programaId);
+        }
         
-        List<AccessToken> tokensGenerados = new ArrayList<>();
+        // Un token por paciente aunque venga repetido en la lista
+        List<Long> pacientes = pacientesIds.stream().distinct().toList();
         
-        for (Long pacienteId : pacientesIds) {
-            // Generar token para cada paciente
-            AccessToken token = generarTokenAcceso(programaId, pacienteId);
-            tokensGenerados.add(token);
+        // Comprobar todos los pacientes con una sola consulta: tienen que existir y ser de la empresa
+        Set<Long> deLaEmpresa = new HashSet<>(pacienteRepository.findIdsByEmpresaId(pacientes, empresaId));
+        for (Long pacienteId : pacientes) {
+            if (!deLaEmpresa.contains(pacienteId)) {
+                throw new IllegalArgumentException("Paciente no encontrado en la empresa con id: " + pacienteId);
+            }
         }
         
+        // Todos los tokens, con 7 días de validez, en un único INSERT
+        List<AccessToken> tokensGenerados = accessTokenBatchWriter.insertar(
+            programaId, programaPublicadoRepository.findUltimaVersionIdByProgramaId(programaId),
+            pacientes, LocalDateTime.now().plusDays(7));
+        tokensGenerados.forEach(token -> accessTokenCache.invalidate(token.getToken()));
+        
         return tokensGenerados;
     }
     
+    // Implementación de métodos para el seguimiento de ejercicios
+    
+    @Override
+    public boolean registrarEjercicioCompletado(UUID token, Long subprogramaId, Long ejercicioId, Integer series) {
+        if (subprogramaId == null || ejercicioId == null) {
+            throw new IllegalArgumentException("Subprograma y ejercicio son obligatorios");
+        }
+        int numeroSeries = series != null ? series : 1;
+        if (numeroSeries < 1 || numeroSeries > MAX_SERIES_POR_REGISTRO) {
+            throw new IllegalArgumentException("El número de series debe estar entre 1 y " + MAX_SERIES_POR_REGISTRO);
+        }
+        
+        // El token sale de la caché; que el ejercicio pertenezca a la versión que ve el paciente
+        // lo comprueba el controlador del portal antes de llamar aquí
+        AccessToken accessToken = getAccessTokenByToken(token);
+        if (accessToken.getFechaExpiracion().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("El token ha expirado");
+        }
+        
+        return registroEjercicioBuffer.registrar(RegistroEjercicio.builder()
+            .accessTokenId(accessToken.getId())
+            .programaPersonalizadoId(accessToken.getProgramaPersonalizadoId())
+            .pacienteId(accessToken.getPacienteId())
+            .subprogramaId(subprogramaId)
+            .ejercicioId(ejercicioId)
+            .series(numeroSeries)
+            .fechaRegistro(LocalDateTime.now())
+            .build());
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public AdherenciaPrograma getAdherenciaPrograma(Long programaId) {
+        var tokens = adherenciaRepository.findTokensByProgramaId(programaId);
+        return adherenciaRepository.findById(programaId)
+            .map(totales -> AdherenciaPrograma.builder()
+                .programaPersonalizadoId(programaId)
+                .seriesCompletadas(totales.getSeriesCompletadas())
+                .registros(totales.getRegistros())
+                .tokensActivos(totales.getTokensActivos())
+                .ultimaActividad(totales.getUltimaActividad())
+                .tokens(tokens)
+                .build())
+            .orElseGet(() -> AdherenciaPrograma.builder()
+                .programaPersonalizadoId(programaId)
+                .seriesCompletadas(0L)
+                .registros(0L)
+                .tokensActivos(0)
+                .build());
+    }
+    
     // Implementación de métodos para comentarios de pacientes
     
     @Override
@@ -446,6 +652,11 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
     public ComentarioPaciente crearComentarioPaciente(ComentarioPaciente comentario) {
         var entity = comentarioMapper.toEntity(comentario);
         var savedEntity = comentarioRepository.save(entity);
+        Long subprogramaId = savedEntity.getSubprograma().getId();
+        contadorComentariosRepository.incrementar(subprogramaId);
+        // Aviso al personal conectado, tras el commit (ver NotificacionesHub)
+        eventPublisher.publishEvent(new EventoComentario(savedEntity.getId(),
+            pertenencia.empresaDe(PertenenciaEmpresaResolver.Tipo.SUBPROGRAMA, subprogramaId), subprogramaId));
         return comentarioMapper.toModel(savedEntity);
     }
     
@@ -464,23 +675,42 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
     
     @Override
     @Transactional
-    public void marcarComentarioComoLeido(Long comentarioId) {
-        var comentario = comentarioRepository.findById(comentarioId)
-            .orElseThrow(() -> new IllegalArgumentException("Comentario no encontrado con id: " + comentarioId));
-        
-        comentario.setLeido(true);
-        comentarioRepository.save(comentario);
+    public long marcarComentariosComoLeidos(List<Long> comentariosIds, Long empresaId) {
+        if (comentariosIds == null || comentariosIds.isEmpty()) {
+            return 0;
+        }
+        return contadorComentariosRepository.marcarLeidos(new HashSet<>(comentariosIds), empresaId);
     }
     
     @Override
-    public List<ComentarioPaciente> getComentariosNoLeidos() {
-        var entities = comentarioRepository.findByLeidoFalseOrderByFechaCreacionDesc();
-        return comentarioMapper.toModelList(entities);
+    public Page<ComentarioPaciente> getComentariosNoLeidos(Long empresaId, Long programaId, Pageable pageable) {
+        var comentarios = comentarioRepository.findNoLeidosByEmpresaId(empresaId, programaId, pageable);
+        
+        // El total sale de los contadores, no de un COUNT sobre los comentarios
+        long total;
+        if (programaId == null) {
+            total = contadorComentariosRepository.sumNoLeidosByEmpresaId(empresaId);
+        } else {
+            total = contadorComentariosRepository.findById(programaId)
+                .filter(c -> c.getEmpresaId().equals(empresaId))
+                .map(c -> c.getNoLeidos().longValue())
+                .orElse(0L);
+        }
+        return new PageImpl<>(comentarios, pageable, total);
     }
     
     @Override
-    public long getCountComentariosNoLeidos() {
-        return comentarioRepository.countByLeidoFalse();
+    public ResumenComentariosNoLeidos getResumenComentariosNoLeidos(Long empresaId) {
+        var porPrograma = new HashMap<Long, Integer>();
+        long total = 0;
+        for (var contador : contadorComentariosRepository.findByEmpresaIdAndNoLeidosGreaterThan(empresaId, 0)) {
+            porPrograma.put(contador.getProgramaPersonalizadoId(), contador.getNoLeidos());
+            total += contador.getNoLeidos();
+        }
+        return ResumenComentariosNoLeidos.builder()
+            .total(total)
+            .porPrograma(porPrograma)
+            .build();
     }
     
     // Implementación de métodos para pasos de subprograma
@@ -492,13 +722,12 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
             throw new IllegalArgumentException("Subprograma no encontrado con id: " + paso.getSubprogramaId());
         }
         
-        // Obtener el último número de paso para este subprograma y asignar el siguiente
-        Integer ultimoNumeroPaso = pasoSubprogramaRepository.findMaxNumeroPasoBySubprogramaId(paso.getSubprogramaId());
-        int nuevoPaso = (ultimoNumeroPaso != null) ? ultimoNumeroPaso + 1 : 1;
-        paso.setNumeroPaso(nuevoPaso);
+        // Asignar el siguiente número de paso del subprograma
+        paso.setNumeroPaso(ordenacion.siguienteNumeroPaso(paso.getSubprogramaId()));
         
         var entity = pasoSubprogramaMapper.toEntity(paso);
         var savedEntity = pasoSubprogramaRepository.save(entity);
+        invalidarSnapshotDeSubprograma(paso.getSubprogramaId());
         return pasoSubprogramaMapper.toModel(savedEntity);
     }
     
@@ -537,33 +766,27 @@ public class ProgramaPersonalizadoService implements ProgramaPersonalizadoServic
         }
         
         var updatedEntity = pasoSubprogramaRepository.save(existingEntity);
+        invalidarSnapshotDeSubprograma(existingEntity.getSubprograma().getId());
         return pasoSubprogramaMapper.toModel(updatedEntity);
     }
     
     @Override
     @Transactional
     public void deletePasoSubprograma(Long id) {
-        if (!pasoSubprogramaRepository.existsById(id)) {
-            throw new IllegalArgumentException("Paso no encontrado con id: " + id);
-        }
-        
         // Obtener el paso actual para conocer su subprograma y número
-        var pasoEntity = pasoSubprogramaRepository.findById(id).orElseThrow();
+        var pasoEntity = pasoSubprogramaRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Paso no encontrado con id: " + id));
         Long subprogramaId = pasoEntity.getSubprograma().getId();
-        int numeroPasoEliminado = pasoEntity.getNumeroPaso();
-        
-        // Eliminar el paso
-        pasoSubprogramaRepository.deleteById(id);
         
-        // Reordenar los pasos restantes
-        var pasosRestantes = pasoSubprogramaRepository.findBySubprogramaIdOrderByNumeroPasoAsc(subprogramaId);
-        int nuevoOrden = 1;
-        
-        for (var paso : pasosRestantes) {
-            if (paso.getNumeroPaso() > numeroPasoEliminado) {
-                paso.setNumeroPaso(nuevoOrden++);
-                pasoSubprogramaRepository.save(paso);
-            }
-        }
+        // Eliminar el paso y adelantar los posteriores
+        pasoSubprogramaRepository.delete(pasoEntity);
+        ordenacion.pasoEliminado(subprogramaId, pasoEntity.getNumeroPaso());
+        invalidarSnapshotDeSubprograma(subprogramaId);
+        pertenencia.invalidate(PertenenciaEmpresaResolver.Tipo.PASO, id);
+    }
+    
+    // El portal de pacientes sirve un snapshot del programa completo: cualquier cambio bajo el subprograma lo invalida
+    private void invalidarSnapshotDeSubprograma(Long subprogramaId) {
+        subprogramaRepository.findProgramaIdById(subprogramaId).ifPresent(portalSnapshotCache::invalidate);
     }
-} 
\ No newline at end of file
+}
@@ -6,17 +6,19 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.proyectofisio.application.ports.input.EmpresaServicePort;
 import com.proyectofisio.application.ports.input.UsuarioServicePort;
+import com.proyectofisio.application.ports.output.PasswordHashingPort;
 import com.proyectofisio.domain.model.Empresa;
 import com.proyectofisio.domain.model.Usuario;
 import com.proyectofisio.domain.model.enums.RolUsuario;
@@ -33,7 +35,8 @@ public class RegistroCompletoService {
 
     private final UsuarioServicePort usuarioService;
     private final EmpresaServicePort empresaService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingPort passwordHashing;
+    private final TransactionTemplate transactionTemplate;
     
     @Value("${app.uploads.dir:uploads}")
     private String uploadDir;
@@ -42,14 +45,20 @@ public class RegistroCompletoService {
     public RegistroCompletoService(
             UsuarioServicePort usuarioService,
             EmpresaServicePort empresaService,
-            PasswordEncoder passwordEncoder) {
+            PasswordHashingPort passwordHashing,
+            PlatformTransactionManager transactionManager) {
         this.usuarioService = usuarioService;
         this.empresaService = empresaService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashing = passwordHashing;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     
-    @Transactional
-    public Usuario registrarUsuarioYEmpresa(RegistroCompletoDTO registroDTO) {
+    /**
+     * Las validaciones se hacen en el hilo del llamante y lanzan IllegalArgumentException;
+     * el hash BCrypt se calcula en el pool de hashing y la transacción se abre cuando termina,
+     * fuera de ese pool, así no se retiene ni un hilo de Tomcat ni una conexión mientras tanto
+     */
+    public CompletableFuture<Usuario> registrarUsuarioYEmpresa(RegistroCompletoDTO registroDTO) {
         if (registroDTO == null) {
             throw new IllegalArgumentException("Los datos de registro no pueden ser nulos");
         }
@@ -96,6 +105,14 @@ public class RegistroCompletoService {
             logoUrl = guardarLogo(empresaDTO.getLogo());
         }
         
+        // Calcular el hash de la contraseña en el pool dedicado
+        final String logoGuardado = logoUrl;
+        return passwordHashing.encodeAsync(usuarioDTO.getContraseña())
+                .thenApply(contraseñaHash -> transactionTemplate.execute(
+                        status -> crearEmpresaYUsuario(empresaDTO, usuarioDTO, logoGuardado, contraseñaHash)));
+    }
+    
+    private Usuario crearEmpresaYUsuario(EmpresaDTO empresaDTO, UsuarioDTO usuarioDTO, String logoUrl, String contraseñaHash) {
         log.info("Creando empresa con nombre: {}, NIF: {}", empresaDTO.getNombre(), empresaDTO.getNif());
         
         // 1. Crear la empresa primero
@@ -137,7 +154,7 @@ public class RegistroCompletoService {
                 .nombre(usuarioDTO.getNombre())
                 .apellidos(usuarioDTO.getApellidos())
                 .email(usuarioDTO.getEmail())
-                .contraseña(passwordEncoder.encode(usuarioDTO.getContraseña()))
+                .contraseña(contraseñaHash)
                 .telefono(usuarioDTO.getTelefono())
                 .dni(usuarioDTO.getDni())
                 .numeroColegiado(usuarioDTO.getNumeroColegiado() != null ? usuarioDTO.getNumeroColegiado() : "")
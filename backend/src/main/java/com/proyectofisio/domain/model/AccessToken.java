@@ -9,7 +9,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class AccessToken {
@@ -17,6 +17,7 @@ public class AccessToken {
     private UUID token;
     private Long pacienteId;
     private Long programaPersonalizadoId;
+    private Long programaPublicadoId;
     private LocalDateTime fechaCreacion;
     private LocalDateTime fechaExpiracion;
     private Boolean usado;
@@ -0,0 +1,28 @@
+package com.proyectofisio.domain.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fila del listado de enlaces de un programa: el token con el nombre del paciente y del programa,
+ * leídos en la misma consulta.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccessTokenResumen {
+    private Long id;
+    private UUID token;
+    private Long pacienteId;
+    private String pacienteNombre;
+    private String pacienteApellidos;
+    private Long programaPersonalizadoId;
+    private String programaNombre;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaExpiracion;
+    private Boolean usado;
+}
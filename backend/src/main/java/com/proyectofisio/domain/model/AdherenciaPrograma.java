@@ -0,0 +1,27 @@
+package com.proyectofisio.domain.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Actividad acumulada de un programa y de cada uno de sus enlaces, para el panel del fisioterapeuta
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdherenciaPrograma {
+    private Long programaPersonalizadoId;
+    private Long seriesCompletadas;
+    private Long registros;
+    private Integer tokensActivos;
+    private LocalDateTime ultimaActividad;
+    @Builder.Default
+    private List<AdherenciaToken> tokens = new ArrayList<>();
+}
@@ -0,0 +1,24 @@
+package com.proyectofisio.domain.model;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Actividad acumulada de un enlace de acceso (un paciente en un programa)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdherenciaToken {
+    private Long accessTokenId;
+    private Long pacienteId;
+    private Long seriesCompletadas;
+    private Long registros;
+    private LocalDateTime primeraActividad;
+    private LocalDateTime ultimaActividad;
+}
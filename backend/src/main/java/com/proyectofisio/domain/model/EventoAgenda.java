@@ -0,0 +1,15 @@
+package com.proyectofisio.domain.model;
+
+import java.time.LocalDate;
+
+/**
+ * Cambio en una cita, publicado por AgendaService y enviado a los clientes conectados tras el commit
+ */
+public record EventoAgenda(Tipo tipo, Long citaId, Long usuarioId, LocalDate fecha) {
+
+    public enum Tipo { CREADA, ACTUALIZADA, CANCELADA, COMPLETADA, ELIMINADA }
+
+    public static EventoAgenda de(Tipo tipo, Agenda cita) {
+        return new EventoAgenda(tipo, cita.getId(), cita.getUsuarioId(), cita.getFecha());
+    }
+}
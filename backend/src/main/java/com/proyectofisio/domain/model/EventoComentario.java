@@ -0,0 +1,7 @@
+package com.proyectofisio.domain.model;
+
+/**
+ * Comentario nuevo de un paciente, publicado al crearlo y enviado a los clientes de la empresa tras el commit
+ */
+public record EventoComentario(Long comentarioId, Long empresaId, Long subprogramaId) {
+}
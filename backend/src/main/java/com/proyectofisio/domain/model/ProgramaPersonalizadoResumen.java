@@ -0,0 +1,27 @@
+package com.proyectofisio.domain.model;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Vista resumida de un programa para los listados: datos de cabecera más el número
+ * de subprogramas y ejercicios, calculados en la base de datos sin cargar el árbol.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProgramaPersonalizadoResumen {
+    private Long id;
+    private String nombre;
+    private String tipoPrograma;
+    private String descripcion;
+    private Long empresaId;
+    private Long creadoPorUsuarioId;
+    private Long cantidadSubprogramas;
+    private Long cantidadEjercicios;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaActualizacion;
+}
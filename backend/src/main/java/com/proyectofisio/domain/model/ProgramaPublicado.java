@@ -0,0 +1,25 @@
+package com.proyectofisio.domain.model;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Versión publicada de un programa: copia inmutable del programa tal como estaba al publicarlo.
+ * Los pacientes ven la versión a la que apunta su token; las ediciones posteriores quedan en el
+ * programa (borrador) hasta la siguiente publicación.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProgramaPublicado {
+    private Long id;
+    private Long programaPersonalizadoId;
+    private Integer version;
+    private Long publicadoPorUsuarioId;
+    private LocalDateTime fechaPublicacion;
+}
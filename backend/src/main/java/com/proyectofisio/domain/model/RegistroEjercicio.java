@@ -0,0 +1,25 @@
+package com.proyectofisio.domain.model;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Serie de un ejercicio que el paciente marca como hecha desde el portal
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistroEjercicio {
+    private Long accessTokenId;
+    private Long programaPersonalizadoId;
+    private Long pacienteId;
+    private Long subprogramaId;
+    private Long ejercicioId;
+    private Integer series;
+    private LocalDateTime fechaRegistro;
+}
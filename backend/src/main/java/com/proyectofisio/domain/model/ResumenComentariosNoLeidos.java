@@ -0,0 +1,22 @@
+package com.proyectofisio.domain.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Comentarios sin leer de una empresa: el total y el desglose por programa (solo los que tienen alguno)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenComentariosNoLeidos {
+    private Long total;
+    @Builder.Default
+    private Map<Long, Integer> porPrograma = new HashMap<>();
+}
@@ -1,11 +1,12 @@
 package com.proyectofisio.infrastructure.adapters.input.rest;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -13,16 +14,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.proyectofisio.application.ports.input.ProgramaPersonalizadoServicePort;
 import com.proyectofisio.domain.model.AccessToken;
 import com.proyectofisio.domain.model.ComentarioPaciente;
-import com.proyectofisio.domain.model.ProgramaPersonalizado;
-import com.proyectofisio.domain.model.Subprograma;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.ComentarioPacienteRequest;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.ComentarioSubprogramaRequest;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.MessageResponse;
+import com.proyectofisio.infrastructure.adapters.input.rest.dto.RegistroEjercicioRequest;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.ValidarTokenRequest;
+import com.proyectofisio.infrastructure.config.PortalSnapshotCache;
 
 import lombok.RequiredArgsConstructor;
 
@@ -31,11 +33,16 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class AccesoProgramaController {
 
+    private static final String PROGRAMA_VERSION_HEADER = "X-Programa-Version";
+    
     private final ProgramaPersonalizadoServicePort programaService;
+    private final PortalSnapshotCache portalSnapshotCache;
     
-    // Endpoint para validar token y obtener programa personalizado
+    // Endpoint para validar token y obtener programa personalizado.
+    // El programa se sirve desde un snapshot ya serializado; si el navegador envía el ETag
+    // de la versión actual se responde 304 sin cuerpo. La versión vigente va en X-Programa-Version
     @GetMapping("")
-    public ResponseEntity<?> validarTokenYObtenerPrograma(@RequestParam String token) {
+    public ResponseEntity<?> validarTokenYObtenerPrograma(@RequestParam String token, WebRequest webRequest) {
         try {
             UUID tokenUUID = UUID.fromString(token);
             
@@ -52,20 +59,57 @@ public class AccesoProgramaController {
                     .body(new MessageResponse("El token ha expirado"));
             }
             
-            // Obtener programa personalizado
-            ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(accessToken.getProgramaPersonalizadoId());
+            // Programa con sus subprogramas ordenados, ejercicios y pasos
+            PortalSnapshotCache.Snapshot snapshot = snapshotDe(accessToken);
             
-            // Obtener subprogramas con ejercicios
-            List<Subprograma> subprogramas = programaService.getSubprogramasByProgramaId(programa.getId());
+            String etag = snapshot.etag(accessToken.getToken());
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
             
-            // Crear un mapa con toda la información
-            Map<String, Object> response = new HashMap<>();
-            response.put("programa", programa);
-            response.put("subprogramas", subprogramas);
-            response.put("token", accessToken.getToken().toString());
-            response.put("pacienteId", accessToken.getPacienteId());
+            var respuesta = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate());
+            if (accessToken.getProgramaPublicadoId() != null) {
+                respuesta.header(PROGRAMA_VERSION_HEADER, accessToken.getProgramaPublicadoId().toString());
+            }
+            return respuesta
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.respuesta(accessToken.getToken(), accessToken.getPacienteId()));
             
-            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
+    // Endpoint para obtener una versión publicada concreta. Su contenido no cambia nunca, así que
+    // el navegador puede guardarla sin volver a preguntar; solo se sirve la versión vigente del token
+    @GetMapping("/version")
+    public ResponseEntity<?> obtenerVersionPublicada(@RequestParam String token, @RequestParam Long versionId) {
+        try {
+            UUID tokenUUID = UUID.fromString(token);
+            
+            AccessToken accessToken = programaService.getAccessTokenByToken(tokenUUID);
+            if (accessToken == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new MessageResponse("Token no válido"));
+            }
+            if (accessToken.getFechaExpiracion().isBefore(java.time.LocalDateTime.now())) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new MessageResponse("El token ha expirado"));
+            }
+            if (!versionId.equals(accessToken.getProgramaPublicadoId())) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new MessageResponse("La versión solicitada no está disponible para este enlace"));
+            }
+            
+            PortalSnapshotCache.Snapshot snapshot = snapshotDe(accessToken);
+            return ResponseEntity.ok()
+                .eTag(snapshot.etag(accessToken.getToken()))
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.respuesta(accessToken.getToken(), accessToken.getPacienteId()));
             
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -103,6 +147,44 @@ public class AccesoProgramaController {
         }
     }
     
+    // Endpoint para registrar las series de un ejercicio que el paciente ha completado.
+    // El ejercicio se comprueba contra la versión que ve el paciente antes de aceptarlo; el registro
+    // se guarda por lotes, así que se responde 202 sin esperar a la base de datos
+    @PostMapping("/registro")
+    public ResponseEntity<?> registrarEjercicioCompletado(@RequestBody RegistroEjercicioRequest request) {
+        try {
+            if (request.getToken() == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new MessageResponse("Token no válido"));
+            }
+            UUID tokenUUID = UUID.fromString(request.getToken());
+            
+            AccessToken accessToken = programaService.getAccessTokenByToken(tokenUUID);
+            if (accessToken == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new MessageResponse("Token no válido"));
+            }
+            if (!snapshotDe(accessToken).incluyeEjercicio(request.getSubprogramaId(), request.getEjercicioId())) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new MessageResponse("El ejercicio no pertenece a este subprograma del programa"));
+            }
+            
+            boolean aceptado = programaService.registrarEjercicioCompletado(tokenUUID,
+                request.getSubprogramaId(), request.getEjercicioId(), request.getSeries());
+            if (!aceptado) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new MessageResponse("No se pudo registrar el ejercicio, inténtalo de nuevo en unos segundos"));
+            }
+            
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new MessageResponse("Ejercicio registrado"));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
     // Endpoint para obtener comentarios de un subprograma para un token específico
     @GetMapping("/comentarios")
     public ResponseEntity<?> getComentariosByTokenAndSubprograma(
@@ -122,15 +204,15 @@ public class AccesoProgramaController {
         }
     }
     
-    // Endpoint para marcar un comentario como leído
-    @PostMapping("/comentario/leido")
-    public ResponseEntity<?> marcarComentarioComoLeido(@RequestParam Long comentarioId) {
-        try {
-            programaService.marcarComentarioComoLeido(comentarioId);
-            return ResponseEntity.ok(new MessageResponse("Comentario marcado como leído"));
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .body(new MessageResponse(e.getMessage()));
+    // Versión publicada del token o, si el programa aún no se ha publicado, el programa actual
+    private PortalSnapshotCache.Snapshot snapshotDe(AccessToken accessToken) {
+        Long versionId = accessToken.getProgramaPublicadoId();
+        if (versionId != null) {
+            return portalSnapshotCache.obtenerPublicado(versionId,
+                () -> programaService.getContenidoVersionPublicada(versionId));
         }
+        Long programaId = accessToken.getProgramaPersonalizadoId();
+        return portalSnapshotCache.obtener(programaId,
+            () -> programaService.getProgramaPersonalizadoById(programaId));
     }
-} 
\ No newline at end of file
+}
@@ -2,14 +2,13 @@ package com.proyectofisio.infrastructure.adapters.input.rest;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -25,12 +24,18 @@ import com.proyectofisio.infrastructure.adapters.input.rest.dto.AuthResponse;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.EmpresaDTO;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.RegistroCompletoDTO;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.UsuarioDTO;
-import com.proyectofisio.infrastructure.config.security.JwtTokenProvider;
+import com.proyectofisio.infrastructure.adapters.input.rest.dto.RefreshTokenRequest;
+import com.proyectofisio.infrastructure.config.security.RefreshTokenService;
+import com.proyectofisio.infrastructure.config.security.RefreshTokenService.Sesion;
+import com.proyectofisio.infrastructure.config.security.PasswordHashingExecutor;
 
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -39,80 +44,145 @@ import java.util.Optional;
 public class AuthController {
 
     private final AuthenticationManager authenticationManager;
-    private final JwtTokenProvider jwtTokenProvider;
+    private final RefreshTokenService refreshTokenService;
     private final UsuarioServicePort usuarioService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
     private final RegistroCompletoService registroCompletoService;
     private final EmailServicePort emailService;
     private final VerificationTokenServicePort verificationTokenService;
     private final ObjectMapper objectMapper;
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody AuthRequest request) {
-        try {
-            // Autenticar usuario
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
-            
-            // Obtener datos del usuario
-            Usuario usuario = usuarioService.obtenerUsuarioPorEmail(request.getEmail())
-                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-            
-            // Generar token
-            String token = jwtTokenProvider.createToken(usuario.getEmail(), usuario.getRol().name());
-            
-            // Crear respuesta
-            AuthResponse response = new AuthResponse(usuario.getId(), usuario.getNombre(), usuario.getApellidos(), 
-                    usuario.getEmail(), usuario.getRol().name(), token, usuario.getEmpresaId());
-            
-            return ResponseEntity.ok(response);
-        } catch (AuthenticationException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Credenciales inválidas");
-        }
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody AuthRequest request) {
+        // La verificación BCrypt (y el rehash si el factor de trabajo ha cambiado) se ejecuta
+        // en el pool de hashing; la sesión se emite después, fuera de ese pool
+        return passwordHashingExecutor.submit(() -> authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())))
+                .<ResponseEntity<?>>thenApply(authentication -> iniciarSesion(request.getEmail()))
+                .exceptionally(ex -> {
+                    Throwable causa = causa(ex);
+                    if (causa instanceof AuthenticationException) {
+                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Credenciales inválidas");
+                    }
+                    if (causa instanceof RejectedExecutionException) {
+                        return servicioSaturado();
+                    }
+                    throw ex instanceof CompletionException completionException
+                            ? completionException : new CompletionException(causa);
+                });
+    }
+    
+    private static Throwable causa(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    private ResponseEntity<?> iniciarSesion(String email) {
+        // Obtener datos del usuario
+        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        
+        // Generar access token y refresh token
+        Sesion sesion = refreshTokenService.iniciarSesion(usuario);
+        
+        // Crear respuesta
+        AuthResponse response = new AuthResponse(usuario.getId(), usuario.getNombre(), usuario.getApellidos(), 
+                usuario.getEmail(), usuario.getRol().name(), sesion.accessToken(), usuario.getEmpresaId());
+        response.setRefreshToken(sesion.refreshToken());
+        
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<?> servicioSaturado() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Demasiadas solicitudes de autenticación, inténtelo de nuevo en unos segundos");
+    }
+
+    /**
+     * Renueva el access token a partir de un refresh token válido.
+     * El refresh token se rota: el presentado deja de servir y se devuelve uno nuevo.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest request) {
+        return refreshTokenService.renovar(request.getRefreshToken())
+                .<ResponseEntity<?>>map(sesion -> {
+                    Map<String, String> response = new HashMap<>();
+                    response.put("token", sesion.accessToken());
+                    response.put("refreshToken", sesion.refreshToken());
+                    return ResponseEntity.ok(response);
+                })
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Refresh token inválido o expirado"));
+    }
+    
+    /**
+     * Cierra la sesión: revoca el refresh token y el access token emitido con él
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestBody RefreshTokenRequest request) {
+        refreshTokenService.cerrarSesion(request.getRefreshToken());
+        return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/registro")
-    public ResponseEntity<?> registro(@RequestBody Usuario usuario) {
-        try {
-            // Verificar si ya existe el email
-            if (usuarioService.existeUsuarioConEmail(usuario.getEmail())) {
-                return ResponseEntity.badRequest().body("El email ya está registrado");
-            }
-            
-            // Encriptar contraseña
-            usuario.setContraseña(passwordEncoder.encode(usuario.getContraseña()));
-            
-            // Por defecto, establecer email como no verificado
-            usuario.setEmailVerificado(false);
-            
-            // Guardar usuario
-            Usuario usuarioGuardado = usuarioService.crearUsuario(usuario);
-            
-            // Generar token de verificación
-            String tokenVerificacion = verificationTokenService.crearToken(usuario.getEmail(), usuarioGuardado.getId());
-            
-            // Enviar correo de verificación
-            emailService.enviarCorreoVerificacion(usuarioGuardado, tokenVerificacion);
-            
-            // Generar token JWT
-            String jwtToken = jwtTokenProvider.createToken(usuarioGuardado.getEmail(), usuarioGuardado.getRol().name());
-            
-            // Crear respuesta
-            AuthResponse response = new AuthResponse(usuarioGuardado.getId(), usuarioGuardado.getNombre(), 
-                    usuarioGuardado.getApellidos(), usuarioGuardado.getEmail(), 
-                    usuarioGuardado.getRol().name(), jwtToken, usuarioGuardado.getEmpresaId());
-            
-            return new ResponseEntity<>(response, HttpStatus.CREATED);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al registrar usuario: " + e.getMessage());
+    public CompletableFuture<ResponseEntity<?>> registro(@RequestBody Usuario usuario) {
+        // Verificar si ya existe el email
+        if (usuarioService.existeUsuarioConEmail(usuario.getEmail())) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("El email ya está registrado"));
         }
+        
+        // Encriptar contraseña en el pool de hashing; el resto del registro continúa fuera de él cuando termina
+        return passwordHashingExecutor.encodeAsync(usuario.getContraseña())
+                .<ResponseEntity<?>>thenApply(hash -> {
+                    usuario.setContraseña(hash);
+                    
+                    // Por defecto, establecer email como no verificado
+                    usuario.setEmailVerificado(false);
+                    
+                    // Guardar usuario
+                    Usuario usuarioGuardado = usuarioService.crearUsuario(usuario);
+                    
+                    // Generar token de verificación
+                    String tokenVerificacion = verificationTokenService.crearToken(usuario.getEmail(), usuarioGuardado.getId());
+                    
+                    // Enviar correo de verificación
+                    emailService.enviarCorreoVerificacion(usuarioGuardado, tokenVerificacion);
+                    
+                    return new ResponseEntity<>(respuestaConSesion(usuarioGuardado), HttpStatus.CREATED);
+                })
+                .exceptionally(ex -> {
+                    Throwable causa = causa(ex);
+                    if (causa instanceof RejectedExecutionException) {
+                        return servicioSaturado();
+                    }
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body("Error al registrar usuario: " + causa.getMessage());
+                });
+    }
+    
+    // Inicia la sesión del usuario recién registrado y construye la respuesta
+    private AuthResponse respuestaConSesion(Usuario usuarioGuardado) {
+        // Generar access token y refresh token
+        Sesion sesion = refreshTokenService.iniciarSesion(usuarioGuardado);
+        
+        // Crear respuesta
+        AuthResponse response = new AuthResponse(
+                usuarioGuardado.getId(), 
+                usuarioGuardado.getNombre(), 
+                usuarioGuardado.getApellidos(), 
+                usuarioGuardado.getEmail(), 
+                usuarioGuardado.getRol().name(), 
+                sesion.accessToken(),
+                usuarioGuardado.getEmpresaId());
+        response.setRefreshToken(sesion.refreshToken());
+        return response;
     }
     
     @PostMapping(value = "/registro-completo", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> registroCompleto(
+    public CompletableFuture<ResponseEntity<?>> registroCompleto(
             @RequestPart("usuario") String usuarioJson,
             @RequestPart("empresa") String empresaJson,
             @RequestPart(value = "logo", required = false) MultipartFile logo) {
+        CompletableFuture<Usuario> registro;
         try {
             log.info("Recibiendo petición de registro completo");
             log.info("Usuario JSON: {}", usuarioJson);
@@ -141,43 +211,43 @@ public class AuthController {
             registroDTO.setUsuario(usuario);
             registroDTO.setEmpresa(empresa);
             
-            // Usar el servicio de registro completo para crear empresa y usuario
-            Usuario usuarioGuardado = registroCompletoService.registrarUsuarioYEmpresa(registroDTO);
-            
-            // Por defecto, establecer email como no verificado (si no viene especificado)
-            if (!usuarioGuardado.isEmailVerificado()) {
-                usuarioGuardado.setEmailVerificado(false);
-                usuarioGuardado = usuarioService.actualizarUsuario(usuarioGuardado);
-                
-                // Generar token de verificación
-                String tokenVerificacion = verificationTokenService.crearToken(usuarioGuardado.getEmail(), usuarioGuardado.getId());
-                
-                // Enviar correo de verificación
-                emailService.enviarCorreoVerificacion(usuarioGuardado, tokenVerificacion);
-            }
-            
-            // Generar token JWT
-            String jwtToken = jwtTokenProvider.createToken(usuarioGuardado.getEmail(), usuarioGuardado.getRol().name());
-            
-            // Crear respuesta
-            AuthResponse response = new AuthResponse(
-                    usuarioGuardado.getId(), 
-                    usuarioGuardado.getNombre(), 
-                    usuarioGuardado.getApellidos(), 
-                    usuarioGuardado.getEmail(), 
-                    usuarioGuardado.getRol().name(), 
-                    jwtToken,
-                    usuarioGuardado.getEmpresaId());
-            
-            return new ResponseEntity<>(response, HttpStatus.CREATED);
-        } catch (IllegalArgumentException e) {
+            // Usar el servicio de registro completo para crear empresa y usuario; las validaciones
+            // fallan aquí mismo, el hash se calcula en el pool de hashing y la transacción después
+            registro = registroCompletoService.registrarUsuarioYEmpresa(registroDTO);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(errorRegistroCompleto(e));
+        }
+        
+        return registro
+                .<ResponseEntity<?>>thenApply(usuarioGuardado -> {
+                    // Por defecto, establecer email como no verificado (si no viene especificado)
+                    if (!usuarioGuardado.isEmailVerificado()) {
+                        usuarioGuardado.setEmailVerificado(false);
+                        usuarioGuardado = usuarioService.actualizarUsuario(usuarioGuardado);
+                        
+                        // Generar token de verificación
+                        String tokenVerificacion = verificationTokenService.crearToken(usuarioGuardado.getEmail(), usuarioGuardado.getId());
+                        
+                        // Enviar correo de verificación
+                        emailService.enviarCorreoVerificacion(usuarioGuardado, tokenVerificacion);
+                    }
+                    
+                    return new ResponseEntity<>(respuestaConSesion(usuarioGuardado), HttpStatus.CREATED);
+                })
+                .exceptionally(ex -> errorRegistroCompleto(causa(ex)));
+    }
+    
+    private ResponseEntity<?> errorRegistroCompleto(Throwable e) {
+        if (e instanceof IllegalArgumentException) {
             log.error("Error de validación: {}", e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
-        } catch (Exception e) {
-            log.error("Error al registrar usuario y empresa", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error al registrar usuario y empresa: " + e.getMessage());
         }
+        if (e instanceof RejectedExecutionException) {
+            return servicioSaturado();
+        }
+        log.error("Error al registrar usuario y empresa", e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error al registrar usuario y empresa: " + e.getMessage());
     }
     
     @GetMapping("/verificar-email/{token}")
@@ -2,11 +2,13 @@ package com.proyectofisio.infrastructure.adapters.input.rest;
 
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -21,6 +23,7 @@ import com.proyectofisio.application.ports.input.ProgramaPersonalizadoServicePor
 import com.proyectofisio.domain.model.Ejercicio;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.EjercicioRequest;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.MessageResponse;
+import com.proyectofisio.infrastructure.config.security.UsuarioPrincipal;
 
 import lombok.RequiredArgsConstructor;
 
@@ -29,16 +32,20 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class EjercicioController {
 
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final int MAX_PAGE_SIZE = 100;
+    
     private final ProgramaPersonalizadoServicePort programaService;
     
     // Endpoint para crear un ejercicio
     @PostMapping
     @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
-    public ResponseEntity<Ejercicio> crearEjercicio(@RequestBody EjercicioRequest request) {
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        Long userId = Long.parseLong(auth.getName());
-        Long empresaId = obtenerEmpresaIdDelUsuario(userId);
+    public ResponseEntity<Ejercicio> crearEjercicio(
+            @RequestBody EjercicioRequest request,
+            @AuthenticationPrincipal UsuarioPrincipal principal) {
+        // El id del usuario y de su empresa viajan en el token
+        Long userId = principal.getId();
+        Long empresaId = principal.getEmpresaId();
         
         Ejercicio ejercicio = Ejercicio.builder()
                 .nombre(request.getNombre())
@@ -58,7 +65,7 @@ public class EjercicioController {
     
     // Endpoint para obtener un ejercicio por ID
     @GetMapping("/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.ejercicio(#id, authentication)")
     public ResponseEntity<Ejercicio> getEjercicioById(@PathVariable Long id) {
         return ResponseEntity.ok(programaService.getEjercicioById(id));
     }
@@ -66,45 +73,38 @@ public class EjercicioController {
     // Endpoint para obtener todos los ejercicios de una empresa
     @GetMapping
     @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
-    public ResponseEntity<List<Ejercicio>> getEjerciciosByEmpresa() {
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        Long userId = Long.parseLong(auth.getName());
-        Long empresaId = obtenerEmpresaIdDelUsuario(userId);
+    public ResponseEntity<List<Ejercicio>> getEjerciciosByEmpresa(
+            @AuthenticationPrincipal UsuarioPrincipal principal) {
+        // La empresa del usuario viaja en el token
+        Long empresaId = principal.getEmpresaId();
         
         return ResponseEntity.ok(programaService.getAllEjerciciosByEmpresaId(empresaId));
     }
     
-    // Endpoint para buscar ejercicios por nombre
+    // Endpoint para buscar ejercicios por nombre, descripción o instrucciones.
+    // Devuelve una página ordenada por relevancia y deja el total en X-Total-Count
     @GetMapping("/search")
     @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
-    public ResponseEntity<List<Ejercicio>> searchEjerciciosByNombre(
-            @RequestParam String query) {
+    public ResponseEntity<List<Ejercicio>> searchEjercicios(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal UsuarioPrincipal principal) {
         
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        Long userId = Long.parseLong(auth.getName());
-        Long empresaId = obtenerEmpresaIdDelUsuario(userId);
+        // La empresa del usuario viaja en el token
+        Long empresaId = principal.getEmpresaId();
         
-        return ResponseEntity.ok(programaService.searchEjerciciosByNombre(query, empresaId));
-    }
-    
-    // Método para obtener el empresaId del usuario
-    private Long obtenerEmpresaIdDelUsuario(Long userId) {
-        // Consultar la base de datos para obtener el empresaId del usuario
-        try {
-            // Aquí deberías inyectar y usar el UsuarioRepository para obtener la información
-            // Por ahora, utilizamos un valor por defecto para pruebas
-            return 1L; // ID de empresa por defecto para pruebas
-        } catch (Exception e) {
-            // En caso de error, devolvemos un valor por defecto
-            return 1L;
-        }
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        Page<Ejercicio> ejercicios = programaService.searchEjercicios(query, empresaId, pageable);
+        
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(ejercicios.getTotalElements()))
+                .body(ejercicios.getContent());
     }
     
     // Endpoint para actualizar un ejercicio
     @PutMapping("/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.ejercicio(#id, authentication)")
     public ResponseEntity<Ejercicio> updateEjercicio(
             @PathVariable Long id,
             @RequestBody EjercicioRequest request) {
@@ -131,7 +131,7 @@ public class EjercicioController {
     
     // Endpoint para eliminar un ejercicio
     @DeleteMapping("/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.ejercicio(#id, authentication)")
     public ResponseEntity<MessageResponse> deleteEjercicio(@PathVariable Long id) {
         programaService.deleteEjercicio(id);
         return ResponseEntity.ok(new MessageResponse("Ejercicio eliminado correctamente"));
@@ -0,0 +1,45 @@
+package com.proyectofisio.infrastructure.adapters.input.rest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.proyectofisio.infrastructure.config.NotificacionesHub;
+import com.proyectofisio.infrastructure.config.security.UsuarioPrincipal;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/notificaciones")
+@RequiredArgsConstructor
+public class NotificacionesController {
+
+    private final NotificacionesHub notificacionesHub;
+
+    // Endpoint de Server-Sent Events con los cambios de agenda ("agenda") y comentarios nuevos ("comentarios")
+    // de la empresa del usuario. Con profesionalId solo llegan los cambios de la agenda de ese profesional
+    @GetMapping("/stream")
+    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA') or hasAuthority('RECEPCIONISTA')")
+    // El cuerpo tiene que declararse como SseEmitter para que Spring lo trate como un stream,
+    // así que los errores se devuelven sin cuerpo
+    public ResponseEntity<SseEmitter> suscribir(
+            @AuthenticationPrincipal UsuarioPrincipal principal,
+            @RequestParam(required = false) Long profesionalId) {
+        if (principal.getEmpresaId() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(
+                notificacionesHub.suscribir(principal.getEmpresaId(), principal.getId(), profesionalId));
+        } catch (IllegalStateException e) {
+            // Máximo de conexiones alcanzado: el cliente reintenta más tarde
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "30").build();
+        }
+    }
+}
@@ -4,19 +4,25 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,21 +37,26 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.proyectofisio.application.ports.input.ProgramaPersonalizadoServicePort;
 import com.proyectofisio.domain.model.AccessToken;
+import com.proyectofisio.domain.model.AccessTokenResumen;
+import com.proyectofisio.domain.model.AdherenciaPrograma;
+import com.proyectofisio.domain.model.ComentarioPaciente;
 import com.proyectofisio.domain.model.ProgramaPersonalizado;
+import com.proyectofisio.domain.model.ProgramaPersonalizadoResumen;
+import com.proyectofisio.domain.model.ProgramaPublicado;
+import com.proyectofisio.domain.model.ResumenComentariosNoLeidos;
 import com.proyectofisio.domain.model.Subprograma;
+import com.proyectofisio.infrastructure.adapters.input.rest.dto.ClonarProgramaRequest;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.GenerarTokenRequest;
+import com.proyectofisio.infrastructure.adapters.input.rest.dto.MarcarComentariosLeidosRequest;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.MessageResponse;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.ProgramaPersonalizadoRequest;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.ReordenarEjerciciosRequest;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.SubprogramaRequest;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.TokenResponse;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.ValidarTokenRequest;
-import com.proyectofisio.infrastructure.adapters.output.persistence.entity.PacienteEntity;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.PacienteRepository;
-import com.proyectofisio.application.ports.input.UsuarioServicePort;
-import com.proyectofisio.domain.model.Usuario;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.ProgramaPersonalizadoResponse;
 import com.proyectofisio.infrastructure.adapters.input.rest.dto.GenerarTokensRequest;
+import com.proyectofisio.infrastructure.config.security.UsuarioPrincipal;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Value;
 
@@ -61,63 +72,30 @@ import com.proyectofisio.infrastructure.adapters.input.rest.dto.PasoSubprogramaR
 @Slf4j
 public class ProgramaPersonalizadoController {
 
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Set<String> CAMPOS_ORDEN_LISTADO =
+            Set.of("nombre", "tipoPrograma", "fechaCreacion", "fechaActualizacion");
+
     @Value("${frontend.base.url:http://localhost:3000}")
     private String frontendBaseUrl;
     
     private final ProgramaPersonalizadoServicePort programaService;
-    private final PacienteRepository pacienteRepository;
-    private final UsuarioServicePort usuarioService;
     
     // Endpoint para crear un programa personalizado
     @PostMapping
     @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
     public ResponseEntity<ProgramaPersonalizado> crearProgramaPersonalizado(
-            @RequestBody ProgramaPersonalizadoRequest request) {
+            @RequestBody ProgramaPersonalizadoRequest request,
+            @AuthenticationPrincipal UsuarioPrincipal principal) {
         
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        // El id del usuario y de su empresa viajan en el token
+        Long userId = principal.getId();
+        Long empresaId = principal.getEmpresaId();
         
-        log.info("=== DEBUG AUTENTICACIÓN DETALLADA ===");
-        log.info("Nombre de usuario autenticado: {}", auth.getName());
-        log.info("Autoridades del usuario: {}", auth.getAuthorities());
-        log.info("Clase de autoridades: {}", auth.getAuthorities().getClass().getName());
-        log.info("Lista de autoridades:");
-        auth.getAuthorities().forEach(authority -> {
-            log.info("- Autoridad: {}, Clase: {}", authority, authority.getClass().getName());
-        });
-        log.info("¿Está autenticado?: {}", auth.isAuthenticated());
-        log.info("Tipo de autenticación: {}", auth.getClass().getName());
-        log.info("Detalles de la autenticación: {}", auth.getDetails());
-        log.info("Principal: {}", auth.getPrincipal());
-        log.info("Clase del Principal: {}", auth.getPrincipal().getClass().getName());
-        log.info("Credenciales: {}", auth.getCredentials());
-        
-        // Comprobar si el usuario tiene los roles necesarios
-        boolean tieneRolFisio = auth.getAuthorities().contains(new SimpleGrantedAuthority("FISIOTERAPEUTA"));
-        boolean tieneRolDueno = auth.getAuthorities().contains(new SimpleGrantedAuthority("DUENO"));
-        log.info("¿Tiene rol FISIOTERAPEUTA?: {}", tieneRolFisio);
-        log.info("¿Tiene rol DUENO?: {}", tieneRolDueno);
-        
-        String email = auth.getName();
-        log.info("Email del usuario: {}", email);
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        log.info("Usuario encontrado: ID={}, Nombre={}, Rol={}", 
-                usuario.getId(), usuario.getNombre(), usuario.getRol());
-        log.info("EmpresaId del usuario: {}", usuario.getEmpresaId());
-        
-        Long userId = usuario.getId();
-        Long empresaId = usuario.getEmpresaId();
-        
-        log.info("Datos del programa a crear:");
-        log.info("Nombre: {}", request.getNombre());
-        log.info("Tipo: {}", request.getTipoPrograma());
-        log.info("Descripción: {}", request.getDescripcion());
-        log.info("EmpresaId: {}", empresaId);
-        log.info("CreadoPorUsuarioId: {}", userId);
+        log.debug("Creando programa '{}' para empresa {} por usuario {}", request.getNombre(), empresaId, userId);
         
         ProgramaPersonalizado programa = ProgramaPersonalizado.builder()
                 .nombre(request.getNombre())
@@ -133,98 +111,121 @@ public class ProgramaPersonalizadoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdPrograma);
     }
     
+    // Endpoint para clonar un programa con todo su contenido
+    @PostMapping("/{id}/clonar")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#id, authentication)")
+    public ResponseEntity<?> clonarProgramaPersonalizado(
+            @PathVariable Long id,
+            @Valid @RequestBody(required = false) ClonarProgramaRequest request,
+            @AuthenticationPrincipal UsuarioPrincipal principal) {
+        try {
+            String nombre = request != null ? request.getNombre() : null;
+            ProgramaPersonalizado copia = programaService.clonarProgramaPersonalizado(id, nombre, principal.getId());
+            log.info("Programa {} clonado como {}", id, copia.getId());
+            return ResponseEntity.status(HttpStatus.CREATED).body(copia);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
+    // Endpoint para publicar el estado actual del programa; los enlaces de pacientes pasan a esta versión
+    @PostMapping("/{id}/publicar")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#id, authentication)")
+    public ResponseEntity<?> publicarProgramaPersonalizado(
+            @PathVariable Long id,
+            @AuthenticationPrincipal UsuarioPrincipal principal) {
+        try {
+            ProgramaPublicado publicado = programaService.publicarProgramaPersonalizado(id, principal.getId());
+            log.info("Programa {} publicado como versión {}", id, publicado.getVersion());
+            return ResponseEntity.status(HttpStatus.CREATED).body(publicado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
+    // Endpoint para listar las versiones publicadas de un programa
+    @GetMapping("/{id}/versiones")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#id, authentication)")
+    public ResponseEntity<List<ProgramaPublicado>> getVersionesPublicadas(@PathVariable Long id) {
+        return ResponseEntity.ok(programaService.getVersionesPublicadas(id));
+    }
+    
     // Endpoint para obtener un programa personalizado por ID
     @GetMapping("/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#id, authentication)")
     public ResponseEntity<ProgramaPersonalizado> getProgramaPersonalizadoById(@PathVariable Long id) {
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
-        // Obtener el programa
-        ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(id);
-        
-        // Verificar que el programa pertenece a la empresa del usuario
-        if (!programa.getEmpresaId().equals(empresaId)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(null);
-        }
-        
-        return ResponseEntity.ok(programa);
+        return ResponseEntity.ok(programaService.getProgramaPersonalizadoById(id));
     }
     
-    // Endpoint para obtener todos los programas personalizados de una empresa
+    // Endpoint para obtener los programas personalizados de una empresa.
+    // Sin page/size devuelve la lista completa; con ellos pagina y deja el total en X-Total-Count
     @GetMapping
     @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
-    public ResponseEntity<List<ProgramaPersonalizadoResponse>> getProgramasPersonalizadosByEmpresa() {
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
-        // Obtener programas
-        List<ProgramaPersonalizado> programas = programaService.getProgramasPersonalizadosByEmpresaId(empresaId);
-        
-        // Convertir a DTOs con información detallada
-        List<ProgramaPersonalizadoResponse> responses = programas.stream()
-                .map(programa -> {
-                    // Contar subprogramas y ejercicios
-                    int cantidadSubprogramas = programa.getSubprogramas() != null ? programa.getSubprogramas().size() : 0;
-                    int cantidadEjercicios = 0;
-                    if (programa.getSubprogramas() != null) {
-                        cantidadEjercicios = programa.getSubprogramas().stream()
-                                .mapToInt(subprograma -> 
-                                    subprograma.getEjercicios() != null ? subprograma.getEjercicios().size() : 0)
-                                .sum();
-                    }
-                    
-                    return ProgramaPersonalizadoResponse.builder()
-                            .id(programa.getId())
-                            .nombre(programa.getNombre())
-                            .tipoPrograma(programa.getTipoPrograma())
-                            .descripcion(programa.getDescripcion())
-                            .empresaId(programa.getEmpresaId())
-                            .creadoPorUsuarioId(programa.getCreadoPorUsuarioId())
-                            .cantidadSubprogramas(cantidadSubprogramas)
-                            .cantidadEjercicios(cantidadEjercicios)
-                            .fechaCreacion(programa.getFechaCreacion())
-                            .fechaActualizacion(programa.getFechaActualizacion())
-                            .build();
-                })
+    public ResponseEntity<List<ProgramaPersonalizadoResponse>> getProgramasPersonalizadosByEmpresa(
+            @AuthenticationPrincipal UsuarioPrincipal principal,
+            @RequestParam(required = false) String tipoPrograma,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "fechaCreacion,desc") String sort) {
+        // La empresa del usuario viaja en el token
+        Long empresaId = principal.getEmpresaId();
+        
+        Sort orden = parseOrdenListado(sort);
+        Pageable pageable = page == null && size == null
+                ? Pageable.unpaged(orden)
+                : PageRequest.of(page != null ? Math.max(page, 0) : 0,
+                        size != null ? Math.min(Math.max(size, 1), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE, orden);
+        String tipo = tipoPrograma == null || tipoPrograma.isBlank() ? null : tipoPrograma;
+        
+        // Los contadores se calculan en la consulta, sin cargar subprogramas ni ejercicios
+        Page<ProgramaPersonalizadoResumen> programas = programaService.getResumenProgramasByEmpresaId(empresaId, tipo, pageable);
+        
+        List<ProgramaPersonalizadoResponse> responses = programas.getContent().stream()
+                .map(programa -> ProgramaPersonalizadoResponse.builder()
+                        .id(programa.getId())
+                        .nombre(programa.getNombre())
+                        .tipoPrograma(programa.getTipoPrograma())
+                        .descripcion(programa.getDescripcion())
+                        .empresaId(programa.getEmpresaId())
+                        .creadoPorUsuarioId(programa.getCreadoPorUsuarioId())
+                        .cantidadSubprogramas(programa.getCantidadSubprogramas().intValue())
+                        .cantidadEjercicios(programa.getCantidadEjercicios().intValue())
+                        .fechaCreacion(programa.getFechaCreacion())
+                        .fechaActualizacion(programa.getFechaActualizacion())
+                        .build())
                 .collect(Collectors.toList());
         
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(programas.getTotalElements()))
+                .body(responses);
+    }
+    
+    // Convierte "campo,direccion" en un Sort; un campo fuera del listado usa el orden por defecto
+    private Sort parseOrdenListado(String sort) {
+        String[] partes = sort.split(",");
+        String campo = partes[0].trim();
+        if (!CAMPOS_ORDEN_LISTADO.contains(campo)) {
+            return Sort.by(Sort.Direction.DESC, "fechaCreacion").and(Sort.by("id"));
+        }
+        Sort.Direction direccion = partes.length > 1
+                ? Sort.Direction.fromOptionalString(partes[1].trim()).orElse(Sort.Direction.ASC)
+                : Sort.Direction.ASC;
+        return Sort.by(direccion, campo).and(Sort.by("id"));
     }
     
     // Endpoint para actualizar un programa personalizado
     @PutMapping("/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#id, authentication)")
     public ResponseEntity<ProgramaPersonalizado> updateProgramaPersonalizado(
             @PathVariable Long id, 
             @RequestBody ProgramaPersonalizadoRequest request) {
         
-        // Obtener el programa existente para mantener los datos actuales
-        ProgramaPersonalizado existingPrograma = programaService.getProgramaPersonalizadoById(id);
-        
-        // Actualizar solo los campos proporcionados
+        // Actualizar solo los campos proporcionados; empresa y creador no cambian
         ProgramaPersonalizado programaToUpdate = ProgramaPersonalizado.builder()
                 .id(id)
                 .nombre(request.getNombre())
                 .tipoPrograma(request.getTipoPrograma())
                 .descripcion(request.getDescripcion())
-                .empresaId(existingPrograma.getEmpresaId())
-                .creadoPorUsuarioId(existingPrograma.getCreadoPorUsuarioId())
                 .build();
         
         return ResponseEntity.ok(programaService.updateProgramaPersonalizado(id, programaToUpdate));
@@ -232,7 +233,7 @@ public class ProgramaPersonalizadoController {
     
     // Endpoint para eliminar un programa personalizado
     @DeleteMapping("/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#id, authentication)")
     public ResponseEntity<MessageResponse> deleteProgramaPersonalizado(@PathVariable Long id) {
         programaService.deleteProgramaPersonalizado(id);
         return ResponseEntity.ok(new MessageResponse("Programa personalizado eliminado correctamente"));
@@ -240,28 +241,11 @@ public class ProgramaPersonalizadoController {
     
     // Endpoint para crear un subprograma
     @PostMapping("/{programaId}/subprogramas")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#programaId, authentication)")
     public ResponseEntity<Subprograma> crearSubprograma(
             @PathVariable Long programaId,
             @RequestBody SubprogramaRequest request) {
         
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
-        // Verificar que el programa pertenece a la empresa del usuario
-        ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(programaId);
-        if (!programa.getEmpresaId().equals(empresaId)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(null);
-        }
-        
         Subprograma subprograma = Subprograma.builder()
                 .nombre(request.getNombre())
                 .descripcion(request.getDescripcion())
@@ -276,59 +260,21 @@ public class ProgramaPersonalizadoController {
     
     // Endpoint para obtener los subprogramas de un programa
     @GetMapping("/{programaId}/subprogramas")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#programaId, authentication)")
     public ResponseEntity<List<Subprograma>> getSubprogramasByProgramaId(@PathVariable Long programaId) {
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
-        // Obtener el programa
-        ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(programaId);
-        
-        // Verificar que el programa pertenece a la empresa del usuario
-        if (!programa.getEmpresaId().equals(empresaId)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(null);
-        }
-        
         return ResponseEntity.ok(programaService.getSubprogramasByProgramaId(programaId));
     }
     
     // Endpoint para actualizar un subprograma
     @PutMapping("/subprogramas/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.subprograma(#id, authentication)")
     public ResponseEntity<Subprograma> updateSubprograma(
             @PathVariable Long id,
             @RequestBody SubprogramaRequest request) {
         
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
         // Obtener el subprograma existente
         Subprograma existingSubprograma = programaService.getSubprogramaById(id);
         
-        // Obtener el programa al que pertenece el subprograma
-        ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(existingSubprograma.getProgramaPersonalizadoId());
-        
-        // Verificar que el programa pertenece a la empresa del usuario
-        if (!programa.getEmpresaId().equals(empresaId)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(null);
-        }
-        
         Subprograma subprogramaToUpdate = Subprograma.builder()
                 .id(id)
                 .nombre(request.getNombre())
@@ -344,7 +290,7 @@ public class ProgramaPersonalizadoController {
     
     // Endpoint para eliminar un subprograma
     @DeleteMapping("/subprogramas/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.subprograma(#id, authentication)")
     public ResponseEntity<MessageResponse> deleteSubprograma(@PathVariable Long id) {
         programaService.deleteSubprograma(id);
         return ResponseEntity.ok(new MessageResponse("Subprograma eliminado correctamente"));
@@ -352,7 +298,7 @@ public class ProgramaPersonalizadoController {
     
     // Endpoint para subir video de un subprograma
     @PostMapping(value = "/subprogramas/{id}/video", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.subprograma(#id, authentication)")
     public ResponseEntity<?> uploadSubprogramaVideo(
             @PathVariable Long id,
             @RequestParam("video") MultipartFile videoFile) {
@@ -425,9 +371,17 @@ public class ProgramaPersonalizadoController {
         return fileName.substring(lastDotIndex);
     }
     
+    // Nombre y apellidos del paciente, omitiendo la parte que falte
+    private static String nombreCompleto(String nombre, String apellidos) {
+        return Stream.of(nombre, apellidos)
+                .filter(parte -> parte != null && !parte.isBlank())
+                .collect(Collectors.joining(" "));
+    }
+    
     // Endpoint para asignar un ejercicio a un subprograma
     @PostMapping("/subprogramas/{subprogramaId}/ejercicios/{ejercicioId}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.subprograma(#subprogramaId, authentication)"
+            + " and @pertenencia.ejercicio(#ejercicioId, authentication)")
     public ResponseEntity<Subprograma> asignarEjercicioASubprograma(
             @PathVariable Long subprogramaId,
             @PathVariable Long ejercicioId,
@@ -438,7 +392,7 @@ public class ProgramaPersonalizadoController {
     
     // Endpoint para remover un ejercicio de un subprograma
     @DeleteMapping("/subprogramas/{subprogramaId}/ejercicios/{ejercicioId}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.subprograma(#subprogramaId, authentication)")
     public ResponseEntity<MessageResponse> removerEjercicioDeSubprograma(
             @PathVariable Long subprogramaId,
             @PathVariable Long ejercicioId) {
@@ -449,7 +403,7 @@ public class ProgramaPersonalizadoController {
     
     // Endpoint para reordenar ejercicios en un subprograma
     @PutMapping("/subprogramas/{subprogramaId}/ejercicios/reordenar")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.subprograma(#subprogramaId, authentication)")
     public ResponseEntity<MessageResponse> reordenarEjerciciosEnSubprograma(
             @PathVariable Long subprogramaId,
             @RequestBody ReordenarEjerciciosRequest request) {
@@ -460,6 +414,7 @@ public class ProgramaPersonalizadoController {
     
     // Endpoint para verificar si un programa se puede eliminar
     @GetMapping("/{id}/puede-eliminar")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#id, authentication)")
     public ResponseEntity<?> puedeEliminarPrograma(@PathVariable Long id) {
         try {
             if (!programaService.puedeEliminarPrograma(id)) {
@@ -483,14 +438,58 @@ public class ProgramaPersonalizadoController {
         }
     }
     
+    // Endpoint para el panel de seguimiento: totales de series completadas del programa y de cada enlace
+    @GetMapping("/{id}/adherencia")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#id, authentication)")
+    public ResponseEntity<AdherenciaPrograma> getAdherenciaPrograma(@PathVariable Long id) {
+        return ResponseEntity.ok(programaService.getAdherenciaPrograma(id));
+    }
+    
+    // Endpoint para la bandeja de comentarios sin leer de la empresa, paginada y con el total en X-Total-Count
+    @GetMapping("/comentarios/no-leidos")
+    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    public ResponseEntity<List<ComentarioPaciente>> getComentariosNoLeidos(
+            @AuthenticationPrincipal UsuarioPrincipal principal,
+            @RequestParam(required = false) Long programaId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        Page<ComentarioPaciente> comentarios =
+                programaService.getComentariosNoLeidos(principal.getEmpresaId(), programaId, pageable);
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(comentarios.getTotalElements()))
+                .body(comentarios.getContent());
+    }
+    
+    // Endpoint para el contador de comentarios sin leer de la empresa y de cada programa
+    @GetMapping("/comentarios/no-leidos/resumen")
+    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    public ResponseEntity<ResumenComentariosNoLeidos> getResumenComentariosNoLeidos(
+            @AuthenticationPrincipal UsuarioPrincipal principal) {
+        return ResponseEntity.ok(programaService.getResumenComentariosNoLeidos(principal.getEmpresaId()));
+    }
+    
+    // Endpoint para marcar varios comentarios como leídos; los de otras empresas se ignoran
+    @PostMapping("/comentarios/marcar-leidos")
+    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    public ResponseEntity<?> marcarComentariosComoLeidos(
+            @AuthenticationPrincipal UsuarioPrincipal principal,
+            @Valid @RequestBody MarcarComentariosLeidosRequest request) {
+        long marcados = programaService.marcarComentariosComoLeidos(request.getIds(), principal.getEmpresaId());
+        return ResponseEntity.ok(Map.of("marcados", marcados));
+    }
+    
     // Endpoint para generar tokens de acceso para múltiples pacientes
     @PostMapping("/{programaId}/generar-tokens")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#programaId, authentication)")
     public ResponseEntity<?> generarTokens(
+            @AuthenticationPrincipal UsuarioPrincipal principal,
             @PathVariable Long programaId,
             @Valid @RequestBody GenerarTokensRequest request) {
         
         try {
-            List<AccessToken> tokens = programaService.generarTokensParaPacientes(programaId, request.getPacientesIds());
+            List<AccessToken> tokens = programaService.generarTokensParaPacientes(
+                programaId, request.getPacientesIds(), principal.getEmpresaId());
             
             List<TokenResponse> response = tokens.stream()
                 .map(token -> {
@@ -511,46 +510,71 @@ public class ProgramaPersonalizadoController {
             
             return ResponseEntity.ok(response);
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new MessageResponse("Error al generar tokens: " + e.getMessage()));
         }
     }
     
-    // Endpoint para obtener tokens de un programa
+    // Endpoint para obtener tokens de un programa, paginado por clave (por defecto DEFAULT_PAGE_SIZE).
+    // X-Next-Cursor trae el valor de antesDeId para la página siguiente y falta en la última
     @GetMapping("/{programaId}/tokens")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
-    public ResponseEntity<List<TokenResponse>> getTokensByProgramaId(@PathVariable Long programaId) {
-        List<AccessToken> tokens = programaService.getTokensByProgramaId(programaId);
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#programaId, authentication)")
+    public ResponseEntity<List<TokenResponse>> getTokensByProgramaId(
+            @PathVariable Long programaId,
+            @RequestParam(required = false) Boolean usado,
+            @RequestParam(required = false) Boolean vigente,
+            @RequestParam(required = false) Long antesDeId,
+            @RequestParam(required = false) Integer limite) {
+        
+        // Se pide una fila de más para saber si hay página siguiente
+        int limiteConsulta = limite != null ? Math.min(Math.max(limite, 1), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        List<AccessTokenResumen> tokens = programaService.getResumenTokensByProgramaId(
+            programaId, usado, vigente, antesDeId, limiteConsulta + 1);
+        
+        String siguienteCursor = null;
+        if (tokens.size() > limiteConsulta) {
+            tokens = tokens.subList(0, limiteConsulta);
+            siguienteCursor = String.valueOf(tokens.get(tokens.size() - 1).getId());
+        }
         
         List<TokenResponse> tokensResponse = tokens.stream()
-            .map(token -> {
-                // Obtener nombre del paciente
-                PacienteEntity paciente = pacienteRepository.findById(token.getPacienteId())
-                    .orElse(null);
-                
-                // Obtener nombre del programa
-                ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(token.getProgramaPersonalizadoId());
-                
-                // Construir enlace de acceso
-                String enlaceAcceso = "/acceso-programa?token=" + token.getToken().toString();
-                
-                return TokenResponse.builder()
-                    .id(token.getId())
-                    .token(token.getToken())
-                    .pacienteId(token.getPacienteId())
-                    .pacienteNombre(paciente != null ? paciente.getNombre() + " " + paciente.getApellidos() : "")
-                    .programaPersonalizadoId(token.getProgramaPersonalizadoId())
-                    .programaNombre(programa.getNombre())
-                    .fechaCreacion(token.getFechaCreacion())
-                    .fechaExpiracion(token.getFechaExpiracion())
-                    .usado(token.getUsado())
-                    .enlaceAcceso(enlaceAcceso)
-                    .build();
-            })
+            .map(token -> TokenResponse.builder()
+                .id(token.getId())
+                .token(token.getToken())
+                .pacienteId(token.getPacienteId())
+                .pacienteNombre(nombreCompleto(token.getPacienteNombre(), token.getPacienteApellidos()))
+                .programaPersonalizadoId(token.getProgramaPersonalizadoId())
+                .programaNombre(token.getProgramaNombre())
+                .fechaCreacion(token.getFechaCreacion())
+                .fechaExpiracion(token.getFechaExpiracion())
+                .usado(token.getUsado())
+                .enlaceAcceso("/acceso-programa?token=" + token.getToken())
+                .build())
             .collect(Collectors.toList());
         
-        return ResponseEntity.ok(tokensResponse);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (siguienteCursor != null) {
+            respuesta.header(NEXT_CURSOR_HEADER, siguienteCursor);
+        }
+        return respuesta.body(tokensResponse);
+    }
+    
+    // Endpoint para revocar el token de acceso de un paciente
+    @DeleteMapping("/{programaId}/tokens/{token}")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.programa(#programaId, authentication)")
+    public ResponseEntity<MessageResponse> revocarToken(
+            @PathVariable Long programaId,
+            @PathVariable UUID token) {
+        
+        try {
+            programaService.revocarTokenAcceso(programaId, token);
+            return ResponseEntity.ok(new MessageResponse("Token revocado correctamente"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
     }
     
     // Endpoint público para validar tokens de acceso
@@ -568,7 +592,7 @@ public class ProgramaPersonalizadoController {
     
     // Endpoint de prueba solo para verificar autenticación
     @GetMapping("/test-auth")
-    public ResponseEntity<Map<String, Object>> testAuth() {
+    public ResponseEntity<Map<String, Object>> testAuth(@AuthenticationPrincipal UsuarioPrincipal principal) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         
         Map<String, Object> response = new HashMap<>();
@@ -577,84 +601,32 @@ public class ProgramaPersonalizadoController {
         response.put("autenticado", auth.isAuthenticated());
         response.put("detalles", auth.getDetails());
         
-        // Obtener usuario por email
-        try {
-            Usuario usuario = usuarioService.obtenerUsuarioPorEmail(auth.getName())
-                    .orElse(null);
-            
-            if (usuario != null) {
-                response.put("usuario_id", usuario.getId());
-                response.put("usuario_nombre", usuario.getNombre());
-                response.put("usuario_rol", usuario.getRol().name());
-                response.put("usuario_empresa_id", usuario.getEmpresaId());
-            } else {
-                response.put("usuario_error", "No se encontró el usuario");
-            }
-        } catch (Exception e) {
-            response.put("error", e.getMessage());
+        // Datos del usuario extraídos del token
+        if (principal != null) {
+            response.put("usuario_id", principal.getId());
+            response.put("usuario_rol", principal.getRol());
+            response.put("usuario_empresa_id", principal.getEmpresaId());
+        } else {
+            response.put("usuario_error", "No se encontró el usuario");
         }
         
         return ResponseEntity.ok(response);
     }
     
     @GetMapping("/subprogramas/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.subprograma(#id, authentication)")
     public ResponseEntity<Subprograma> getSubprogramaById(@PathVariable Long id) {
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
-        // Obtener el subprograma
-        Subprograma subprograma = programaService.getSubprogramaById(id);
-        
-        // Obtener el programa al que pertenece el subprograma
-        ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(subprograma.getProgramaPersonalizadoId());
-        
-        // Verificar que el programa pertenece a la empresa del usuario
-        if (!programa.getEmpresaId().equals(empresaId)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(null);
-        }
-        
-        return ResponseEntity.ok(subprograma);
+        return ResponseEntity.ok(programaService.getSubprogramaById(id));
     }
 
     // Endpoints para la gestión de pasos de subprograma
 
     @PostMapping("/subprogramas/{subprogramaId}/pasos")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.subprograma(#subprogramaId, authentication)")
     public ResponseEntity<PasoSubprograma> crearPasoSubprograma(
             @PathVariable Long subprogramaId,
             @RequestBody PasoSubprogramaRequest request) {
         
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
-        // Obtener el subprograma
-        Subprograma subprograma = programaService.getSubprogramaById(subprogramaId);
-        
-        // Obtener el programa al que pertenece el subprograma
-        ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(subprograma.getProgramaPersonalizadoId());
-        
-        // Verificar que el programa pertenece a la empresa del usuario
-        if (!programa.getEmpresaId().equals(empresaId)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(null);
-        }
-        
         PasoSubprograma paso = PasoSubprograma.builder()
                 .descripcion(request.getDescripcion())
                 .videoReferencia(request.getVideoReferencia())
@@ -666,95 +638,26 @@ public class ProgramaPersonalizadoController {
     }
 
     @GetMapping("/subprogramas/{subprogramaId}/pasos")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.subprograma(#subprogramaId, authentication)")
     public ResponseEntity<List<PasoSubprograma>> getPasosBySubprogramaId(@PathVariable Long subprogramaId) {
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
-        // Obtener el subprograma
-        Subprograma subprograma = programaService.getSubprogramaById(subprogramaId);
-        
-        // Obtener el programa al que pertenece el subprograma
-        ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(subprograma.getProgramaPersonalizadoId());
-        
-        // Verificar que el programa pertenece a la empresa del usuario
-        if (!programa.getEmpresaId().equals(empresaId)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(null);
-        }
-        
         return ResponseEntity.ok(programaService.getPasosBySubprogramaId(subprogramaId));
     }
 
     @GetMapping("/subprogramas/pasos/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.paso(#id, authentication)")
     public ResponseEntity<PasoSubprograma> getPasoById(@PathVariable Long id) {
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
-        // Obtener el paso
-        PasoSubprograma paso = programaService.getPasoSubprogramaById(id);
-        
-        // Obtener el subprograma
-        Subprograma subprograma = programaService.getSubprogramaById(paso.getSubprogramaId());
-        
-        // Obtener el programa al que pertenece el subprograma
-        ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(subprograma.getProgramaPersonalizadoId());
-        
-        // Verificar que el programa pertenece a la empresa del usuario
-        if (!programa.getEmpresaId().equals(empresaId)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(null);
-        }
-        
-        return ResponseEntity.ok(paso);
+        return ResponseEntity.ok(programaService.getPasoSubprogramaById(id));
     }
 
     @PutMapping("/subprogramas/pasos/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.paso(#id, authentication)")
     public ResponseEntity<PasoSubprograma> updatePaso(
             @PathVariable Long id,
             @RequestBody PasoSubprogramaRequest request) {
         
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
         // Obtener el paso existente
         PasoSubprograma existingPaso = programaService.getPasoSubprogramaById(id);
         
-        // Obtener el subprograma
-        Subprograma subprograma = programaService.getSubprogramaById(existingPaso.getSubprogramaId());
-        
-        // Obtener el programa al que pertenece el subprograma
-        ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(subprograma.getProgramaPersonalizadoId());
-        
-        // Verificar que el programa pertenece a la empresa del usuario
-        if (!programa.getEmpresaId().equals(empresaId)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body(null);
-        }
-        
         PasoSubprograma pasoToUpdate = PasoSubprograma.builder()
                 .id(id)
                 .numeroPaso(existingPaso.getNumeroPaso())
@@ -768,40 +671,15 @@ public class ProgramaPersonalizadoController {
     }
 
     @DeleteMapping("/subprogramas/pasos/{id}")
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.paso(#id, authentication)")
     public ResponseEntity<Void> deletePaso(@PathVariable Long id) {
-        // Obtener el usuario autenticado
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        
-        // Obtener usuario por email
-        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        
-        Long empresaId = usuario.getEmpresaId();
-        
-        // Obtener el paso
-        PasoSubprograma paso = programaService.getPasoSubprogramaById(id);
-        
-        // Obtener el subprograma
-        Subprograma subprograma = programaService.getSubprogramaById(paso.getSubprogramaId());
-        
-        // Obtener el programa al que pertenece el subprograma
-        ProgramaPersonalizado programa = programaService.getProgramaPersonalizadoById(subprograma.getProgramaPersonalizadoId());
-        
-        // Verificar que el programa pertenece a la empresa del usuario
-        if (!programa.getEmpresaId().equals(empresaId)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .build();
-        }
-        
         programaService.deletePasoSubprograma(id);
         return ResponseEntity.noContent().build();
     }
 
     // Endpoint para subir video de un paso
     @PostMapping(value = "/subprogramas/pasos/{id}/video", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.paso(#id, authentication)")
     public ResponseEntity<?> uploadPasoVideo(
             @PathVariable Long id,
             @RequestParam("video") MultipartFile videoFile) {
@@ -838,7 +716,7 @@ public class ProgramaPersonalizadoController {
 
     // Endpoint para subir imágenes de un paso
     @PostMapping(value = "/subprogramas/pasos/{id}/imagenes", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @PreAuthorize("hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')")
+    @PreAuthorize("(hasAuthority('DUENO') or hasAuthority('FISIOTERAPEUTA')) and @pertenencia.paso(#id, authentication)")
     public ResponseEntity<?> uploadPasoImagenes(
             @PathVariable Long id,
             @RequestParam("imagenes") List<MultipartFile> imagenesFiles) {
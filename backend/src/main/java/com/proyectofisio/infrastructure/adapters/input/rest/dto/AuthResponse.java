@@ -15,6 +15,7 @@ public class AuthResponse {
     private String rol;
     private String token;
     private Long empresaId; // ID de la empresa asociada, si existe
+    private String refreshToken; // Permite renovar el token de acceso, que es de vida corta
     
     // Constructor sin empresaId para compatibilidad con código existente
     public AuthResponse(Long id, String nombre, String apellidos, String email, String rol, String token) {
@@ -25,4 +26,9 @@ public class AuthResponse {
         this.rol = rol;
         this.token = token;
     }
+    
+    public AuthResponse(Long id, String nombre, String apellidos, String email, String rol, String token, Long empresaId) {
+        this(id, nombre, apellidos, email, rol, token);
+        this.empresaId = empresaId;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.proyectofisio.infrastructure.adapters.input.rest.dto;
+
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClonarProgramaRequest {
+    // Opcional: si no se indica, la copia se llama "<nombre original> (copia)"
+    @Size(max = 255, message = "El nombre no puede superar los 255 caracteres")
+    private String nombre;
+}
@@ -2,6 +2,8 @@ package com.proyectofisio.infrastructure.adapters.input.rest.dto;
 
 import java.util.List;
 
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,5 +14,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class GenerarTokensRequest {
+    @NotEmpty(message = "Debe indicar al menos un paciente")
+    @Size(max = 5000, message = "No se pueden generar más de 5000 tokens a la vez")
     private List<Long> pacientesIds;
 } 
\ No newline at end of file
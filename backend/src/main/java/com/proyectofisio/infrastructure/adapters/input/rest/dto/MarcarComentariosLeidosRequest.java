@@ -0,0 +1,20 @@
+package com.proyectofisio.infrastructure.adapters.input.rest.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarcarComentariosLeidosRequest {
+    @NotEmpty(message = "La lista de comentarios no puede estar vacía")
+    @Size(max = 1000, message = "No se pueden marcar más de 1000 comentarios a la vez")
+    private List<Long> ids;
+}
@@ -0,0 +1,18 @@
+package com.proyectofisio.infrastructure.adapters.input.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistroEjercicioRequest {
+    private String token;
+    private Long subprogramaId;
+    private Long ejercicioId;
+    // Series completadas en este registro; por defecto 1
+    private Integer series;
+}
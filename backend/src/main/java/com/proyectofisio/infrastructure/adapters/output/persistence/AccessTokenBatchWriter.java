@@ -0,0 +1,87 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.proyectofisio.domain.model.AccessToken;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Inserta los tokens de acceso de muchos pacientes en una sola sentencia.
+ *
+ * Con IDENTITY Hibernate tiene que insertar fila a fila para conocer cada id; aquí se pasan
+ * los UUID y los pacientes como dos arrays a un INSERT ... SELECT FROM unnest(...) RETURNING,
+ * de modo que el coste es un único viaje a la base de datos sea cual sea el tamaño del lote.
+ * Se ejecuta con la conexión de la transacción JPA en curso.
+ */
+@Component
+@RequiredArgsConstructor
+public class AccessTokenBatchWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO access_tokens (token, paciente_id, programa_personalizado_id, programa_publicado_id, "
+            + "fecha_creacion, fecha_expiracion, usado) "
+            + "SELECT t.token, t.paciente_id, ?, ?, ?, ?, false "
+            + "FROM unnest(?::uuid[], ?::bigint[]) AS t(token, paciente_id) "
+            + "RETURNING id, token";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Crea un token por paciente y los devuelve en el mismo orden que la lista recibida
+     *
+     * @param programaPublicadoId versión publicada que verán los pacientes; null si no hay ninguna
+     */
+    public List<AccessToken> insertar(Long programaId, Long programaPublicadoId, List<Long> pacientesIds,
+            LocalDateTime fechaExpiracion) {
+        if (pacientesIds.isEmpty()) {
+            return List.of();
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        UUID[] tokens = new UUID[pacientesIds.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = UUID.randomUUID();
+        }
+        Long[] pacientes = pacientesIds.toArray(Long[]::new);
+
+        Map<UUID, Long> idsPorToken = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SQL);
+            ps.setLong(1, programaId);
+            ps.setObject(2, programaPublicadoId, Types.BIGINT);
+            ps.setObject(3, ahora);
+            ps.setObject(4, fechaExpiracion);
+            ps.setArray(5, con.createArrayOf("uuid", tokens));
+            ps.setArray(6, con.createArrayOf("bigint", pacientes));
+            return ps;
+        }, rs -> {
+            idsPorToken.put(rs.getObject("token", UUID.class), rs.getLong("id"));
+        });
+
+        List<AccessToken> creados = new ArrayList<>(tokens.length);
+        for (int i = 0; i < tokens.length; i++) {
+            creados.add(AccessToken.builder()
+                .id(idsPorToken.get(tokens[i]))
+                .token(tokens[i])
+                .programaPersonalizadoId(programaId)
+                .programaPublicadoId(programaPublicadoId)
+                .pacienteId(pacientes[i])
+                .fechaCreacion(ahora)
+                .fechaExpiracion(fechaExpiracion)
+                .usado(false)
+                .build());
+        }
+        return creados;
+    }
+}
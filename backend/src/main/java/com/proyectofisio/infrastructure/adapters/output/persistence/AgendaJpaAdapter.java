@@ -121,28 +121,9 @@ public class AgendaJpaAdapter implements AgendaRepositoryPort {
     }
 
     @Override
-    public List<Agenda> findConflictingAppointments(Long usuarioId, LocalDate fecha, 
-                                                  LocalTime horaInicio, LocalTime horaFin, Long idCitaExcluir) {
-        // Obtenemos todas las citas del profesional en esa fecha (excluyendo la cita actual)
-        List<AgendaEntity> citas = agendaRepository.findAppointmentsByUsuarioAndFecha(usuarioId, fecha, idCitaExcluir);
-        
-        // Filtramos en memoria las citas que se solapan con el horario proporcionado
-        List<AgendaEntity> citasConflictivas = citas.stream()
-                .filter(cita -> {
-                    LocalTime citaInicio = cita.getHora();
-                    LocalTime citaFin = citaInicio.plusMinutes(cita.getDuracion());
-                    
-                    // Existe conflicto si:
-                    // - La cita existente comienza durante la nueva cita (citaInicio >= horaInicio && citaInicio < horaFin)
-                    // - La nueva cita comienza durante la cita existente (horaInicio >= citaInicio && horaInicio < citaFin)
-                    return (citaInicio.compareTo(horaInicio) >= 0 && citaInicio.compareTo(horaFin) < 0) || 
-                           (horaInicio.compareTo(citaInicio) >= 0 && horaInicio.compareTo(citaFin) < 0);
-                })
-                .collect(Collectors.toList());
-        
-        // Convertimos las entidades a modelos de dominio
-        return citasConflictivas.stream()
-                .map(agendaMapper::toModel)
-                .collect(Collectors.toList());
+    public boolean existsConflictingAppointment(Long usuarioId, LocalDate fecha,
+                                                LocalTime horaInicio, int duracion, Long idCitaExcluir) {
+        long inicio = horaInicio.toSecondOfDay();
+        return agendaRepository.existsSolapamiento(usuarioId, fecha, inicio, inicio + duracion * 60L, idCitaExcluir);
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EjercicioEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.EjercicioRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Búsqueda de ejercicios de la biblioteca de una empresa por nombre, descripción e instrucciones.
+ *
+ * Usa trigramas de PostgreSQL (pg_trgm): el operador {@code <%} compara la consulta con cada
+ * palabra del texto, así que tolera erratas y coincidencias parciales, y un índice GIN sobre la
+ * misma expresión evita recorrer la tabla. Los resultados se ordenan por similitud, pesando el
+ * doble la del nombre. La extensión y el índice se crean al arrancar; si la base de datos no lo
+ * permite se busca con ILIKE sobre el nombre, sin ranking.
+ */
+@Component
+@Slf4j
+@Order(3)
+@RequiredArgsConstructor
+public class EjercicioBuscador implements CommandLineRunner {
+
+    private static final String CREAR_EXTENSION = "CREATE EXTENSION IF NOT EXISTS pg_trgm";
+
+    private static final String CREAR_INDICE =
+            "CREATE INDEX IF NOT EXISTS idx_ejercicios_busqueda_trgm ON ejercicios USING gin (("
+            + EjercicioRepository.TEXTO_BUSQUEDA.replace("e.", "") + ") gin_trgm_ops)";
+
+    private final EjercicioRepository ejercicioRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean trigramas;
+
+    @Override
+    public void run(String... args) {
+        try {
+            jdbcTemplate.execute(CREAR_EXTENSION);
+            jdbcTemplate.execute(CREAR_INDICE);
+            trigramas = true;
+            log.info("Índice de búsqueda de ejercicios preparado");
+        } catch (DataAccessException e) {
+            log.warn("No se pudo preparar pg_trgm; la búsqueda de ejercicios usará ILIKE: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Página de ejercicios de la empresa que coinciden con el texto, del más al menos relevante.
+     * Un texto vacío devuelve la biblioteca completa por nombre.
+     */
+    public Page<EjercicioEntity> buscar(Long empresaId, String texto, Pageable pageable) {
+        String consulta = texto == null ? "" : texto.trim().toLowerCase();
+        if (consulta.isEmpty()) {
+            return ejercicioRepository.findByEmpresaId(empresaId, conOrden(pageable, Sort.by("nombre", "id")));
+        }
+        if (trigramas) {
+            return ejercicioRepository.buscarPorSimilitud(empresaId, consulta, pageable);
+        }
+        return ejercicioRepository.findByEmpresaIdAndNombreContainingIgnoreCase(empresaId, consulta,
+                conOrden(pageable, Sort.by("nombre", "id")));
+    }
+
+    private static Pageable conOrden(Pageable pageable, Sort orden) {
+        return pageable.isPaged() ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), orden)
+                : Pageable.unpaged(orden);
+    }
+}
@@ -0,0 +1,147 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Copia un programa con sus subprogramas, ejercicios asignados, pasos e imágenes de cada paso
+ * con un número fijo de sentencias, independiente del tamaño del programa.
+ *
+ * Los ids de los subprogramas y pasos nuevos se reservan antes con nextval sobre la secuencia
+ * de cada tabla; así se conoce la correspondencia origen -> copia y cada nivel se inserta con un
+ * único INSERT ... SELECT que cruza la tabla original con esa correspondencia (unnest de dos arrays).
+ */
+@Component
+@RequiredArgsConstructor
+public class ProgramaPersonalizadoCloner {
+
+    private static final String INSERT_PROGRAMA =
+            "INSERT INTO programas_personalizados (nombre, tipo_programa, descripcion, empresa_id, "
+            + "creado_por_usuario_id, fecha_creacion, fecha_actualizacion) "
+            + "SELECT COALESCE(?, nombre || ' (copia)'), tipo_programa, descripcion, empresa_id, ?, ?, ? "
+            + "FROM programas_personalizados WHERE id = ? RETURNING id";
+
+    private static final String RESERVAR_SUBPROGRAMAS =
+            "SELECT s.id, nextval(pg_get_serial_sequence('subprogramas', 'id')) "
+            + "FROM subprogramas s WHERE s.programa_personalizado_id = ? ORDER BY s.id";
+
+    private static final String RESERVAR_PASOS =
+            "SELECT p.id, nextval(pg_get_serial_sequence('pasos_subprograma', 'id')) "
+            + "FROM pasos_subprograma p JOIN subprogramas s ON s.id = p.subprograma_id "
+            + "WHERE s.programa_personalizado_id = ? ORDER BY p.id";
+
+    private static final String INSERT_SUBPROGRAMAS =
+            "INSERT INTO subprogramas (id, nombre, descripcion, orden, video_referencia, es_enlace_externo, "
+            + "programa_personalizado_id, fecha_creacion, fecha_actualizacion) "
+            + "SELECT m.nuevo_id, s.nombre, s.descripcion, s.orden, s.video_referencia, s.es_enlace_externo, ?, ?, ? "
+            + "FROM subprogramas s JOIN unnest(?::bigint[], ?::bigint[]) AS m(origen_id, nuevo_id) ON m.origen_id = s.id";
+
+    private static final String INSERT_EJERCICIOS =
+            "INSERT INTO subprograma_ejercicio (subprograma_id, ejercicio_id, orden) "
+            + "SELECT m.nuevo_id, se.ejercicio_id, se.orden "
+            + "FROM subprograma_ejercicio se JOIN unnest(?::bigint[], ?::bigint[]) AS m(origen_id, nuevo_id) "
+            + "ON m.origen_id = se.subprograma_id";
+
+    private static final String INSERT_PASOS =
+            "INSERT INTO pasos_subprograma (id, numero_paso, descripcion, video_referencia, es_enlace_externo, "
+            + "subprograma_id, fecha_creacion, fecha_actualizacion) "
+            + "SELECT mp.nuevo_id, p.numero_paso, p.descripcion, p.video_referencia, p.es_enlace_externo, ms.nuevo_id, ?, ? "
+            + "FROM pasos_subprograma p "
+            + "JOIN unnest(?::bigint[], ?::bigint[]) AS mp(origen_id, nuevo_id) ON mp.origen_id = p.id "
+            + "JOIN unnest(?::bigint[], ?::bigint[]) AS ms(origen_id, nuevo_id) ON ms.origen_id = p.subprograma_id";
+
+    private static final String INSERT_IMAGENES =
+            "INSERT INTO paso_subprograma_entity_imagenes_urls (paso_subprograma_entity_id, imagen_url) "
+            + "SELECT m.nuevo_id, i.imagen_url "
+            + "FROM paso_subprograma_entity_imagenes_urls i JOIN unnest(?::bigint[], ?::bigint[]) AS m(origen_id, nuevo_id) "
+            + "ON m.origen_id = i.paso_subprograma_entity_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Crea la copia y devuelve su id
+     *
+     * @param nombre nombre de la copia; si es null se usa el original con el sufijo " (copia)"
+     * @param usuarioId usuario que figura como creador de la copia
+     * @throws IllegalArgumentException si el programa de origen no existe
+     */
+    @Transactional
+    public Long clonar(Long programaId, String nombre, Long usuarioId) {
+        LocalDateTime ahora = LocalDateTime.now();
+
+        List<Long> creado = jdbcTemplate.queryForList(INSERT_PROGRAMA, Long.class, nombre, usuarioId, ahora, ahora, programaId);
+        if (creado.isEmpty()) {
+            throw new IllegalArgumentException("Programa personalizado no encontrado con id: " + programaId);
+        }
+        Long nuevoProgramaId = creado.get(0);
+
+        Correspondencia subprogramas = reservar(RESERVAR_SUBPROGRAMAS, programaId);
+        if (subprogramas.isEmpty()) {
+            return nuevoProgramaId;
+        }
+        Correspondencia pasos = reservar(RESERVAR_PASOS, programaId);
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SUBPROGRAMAS);
+            ps.setLong(1, nuevoProgramaId);
+            ps.setObject(2, ahora);
+            ps.setObject(3, ahora);
+            subprogramas.bind(con, ps, 4);
+            return ps;
+        });
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_EJERCICIOS);
+            subprogramas.bind(con, ps, 1);
+            return ps;
+        });
+        if (!pasos.isEmpty()) {
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(INSERT_PASOS);
+                ps.setObject(1, ahora);
+                ps.setObject(2, ahora);
+                pasos.bind(con, ps, 3);
+                subprogramas.bind(con, ps, 5);
+                return ps;
+            });
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(INSERT_IMAGENES);
+                pasos.bind(con, ps, 1);
+                return ps;
+            });
+        }
+        return nuevoProgramaId;
+    }
+
+    private Correspondencia reservar(String sql, Long programaId) {
+        List<Long[]> filas = jdbcTemplate.query(sql, (rs, i) -> new Long[] { rs.getLong(1), rs.getLong(2) }, programaId);
+        Long[] origen = new Long[filas.size()];
+        Long[] nuevo = new Long[filas.size()];
+        for (int i = 0; i < filas.size(); i++) {
+            origen[i] = filas.get(i)[0];
+            nuevo[i] = filas.get(i)[1];
+        }
+        return new Correspondencia(origen, nuevo);
+    }
+
+    // Pares id original -> id reservado para la copia
+    private record Correspondencia(Long[] origen, Long[] nuevo) {
+
+        boolean isEmpty() {
+            return origen.length == 0;
+        }
+
+        void bind(Connection con, PreparedStatement ps, int indice) throws SQLException {
+            ps.setArray(indice, con.createArrayOf("bigint", origen));
+            ps.setArray(indice + 1, con.createArrayOf("bigint", nuevo));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.PasoSubprogramaRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.SubprogramaEjercicioRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.SubprogramaRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Mantiene las posiciones de subprogramas, ejercicios asignados y pasos dentro de su padre.
+ *
+ * Las posiciones son visibles para el usuario ("Paso 3", campo orden del subprograma), así que
+ * se mantienen consecutivas desde 1. Cada operación es una sola sentencia sobre el conjunto de
+ * hermanos: el siguiente valor sale de un MAX, una eliminación desplaza a los posteriores con un
+ * UPDATE y un reordenado renumera el subprograma entero de una vez.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProgramaPersonalizadoOrdenacion {
+
+    private final SubprogramaRepository subprogramaRepository;
+    private final SubprogramaEjercicioRepository subprogramaEjercicioRepository;
+    private final PasoSubprogramaRepository pasoSubprogramaRepository;
+
+    public int siguienteOrdenSubprograma(Long programaId) {
+        return subprogramaRepository.findMaxOrdenByProgramaId(programaId) + 1;
+    }
+
+    public int siguienteOrdenEjercicio(Long subprogramaId) {
+        Integer maxOrden = subprogramaEjercicioRepository.findMaxOrdenBySubprogramaId(subprogramaId);
+        return maxOrden != null ? maxOrden + 1 : 1;
+    }
+
+    public int siguienteNumeroPaso(Long subprogramaId) {
+        Integer maxPaso = pasoSubprogramaRepository.findMaxNumeroPasoBySubprogramaId(subprogramaId);
+        return maxPaso != null ? maxPaso + 1 : 1;
+    }
+
+    /**
+     * Cierra el hueco que deja un subprograma ya eliminado
+     */
+    @Transactional
+    public void subprogramaEliminado(Long programaId, Integer orden) {
+        if (orden != null) {
+            subprogramaRepository.desplazarOrdenesPosteriores(programaId, orden);
+        }
+    }
+
+    /**
+     * Cierra el hueco que deja un paso ya eliminado
+     */
+    @Transactional
+    public void pasoEliminado(Long subprogramaId, Integer numeroPaso) {
+        if (numeroPaso != null) {
+            pasoSubprogramaRepository.desplazarPasosPosteriores(subprogramaId, numeroPaso);
+        }
+    }
+
+    /**
+     * Quita el ejercicio del subprograma y adelanta a los que iban detrás
+     *
+     * @return false si el ejercicio no estaba asignado
+     */
+    @Transactional
+    public boolean quitarEjercicio(Long subprogramaId, Long ejercicioId) {
+        var orden = subprogramaEjercicioRepository.findOrdenBySubprogramaIdAndEjercicioId(subprogramaId, ejercicioId);
+        if (orden.isEmpty()) {
+            return false;
+        }
+        subprogramaEjercicioRepository.deleteRelacion(subprogramaId, ejercicioId);
+        subprogramaEjercicioRepository.desplazarOrdenesPosteriores(subprogramaId, orden.get());
+        return true;
+    }
+
+    /**
+     * Aplica el orden de la lista: valida la pertenencia con una consulta y renumera con un UPDATE.
+     * Los ejercicios del subprograma que no aparecen en la lista quedan a continuación.
+     *
+     * @throws IllegalArgumentException si hay ids repetidos o alguno no está asignado al subprograma
+     */
+    @Transactional
+    public void reordenarEjercicios(Long subprogramaId, List<Long> ejerciciosIds) {
+        if (ejerciciosIds == null || ejerciciosIds.isEmpty()) {
+            return;
+        }
+        Set<Long> unicos = new HashSet<>(ejerciciosIds);
+        if (unicos.size() != ejerciciosIds.size()) {
+            throw new IllegalArgumentException("La lista de ejercicios contiene ids repetidos");
+        }
+
+        Set<Long> asignados = new HashSet<>(
+            subprogramaEjercicioRepository.findEjercicioIdsAsignados(subprogramaId, unicos));
+        for (Long ejercicioId : ejerciciosIds) {
+            if (!asignados.contains(ejercicioId)) {
+                throw new IllegalArgumentException("El ejercicio con id " + ejercicioId +
+                    " no está asignado al subprograma con id " + subprogramaId);
+            }
+        }
+
+        subprogramaEjercicioRepository.reordenar(subprogramaId, ejerciciosIds);
+    }
+}
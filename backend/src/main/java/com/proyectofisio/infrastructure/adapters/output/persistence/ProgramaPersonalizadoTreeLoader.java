@@ -0,0 +1,77 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.proyectofisio.domain.model.ProgramaPersonalizado;
+import com.proyectofisio.domain.model.Subprograma;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.SubprogramaEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.mapper.ProgramaPersonalizadoMapper;
+import com.proyectofisio.infrastructure.adapters.output.persistence.mapper.SubprogramaMapper;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.PasoSubprogramaRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.ProgramaPersonalizadoRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.SubprogramaRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Carga el árbol completo de un programa (subprogramas, ejercicios, pasos e imágenes de
+ * cada paso) con un número fijo de consultas, independiente de su tamaño.
+ *
+ * Cada colección se inicializa con su propia consulta con JOIN FETCH porque Hibernate no
+ * permite traer varias listas (bags) en la misma. Todas se ejecutan en la misma sesión,
+ * así que cada consulta rellena las colecciones de las entidades ya cargadas por la anterior
+ * y el mapeo posterior no dispara ninguna carga perezosa.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProgramaPersonalizadoTreeLoader {
+
+    private final ProgramaPersonalizadoRepository programaRepository;
+    private final SubprogramaRepository subprogramaRepository;
+    private final PasoSubprogramaRepository pasoSubprogramaRepository;
+    private final ProgramaPersonalizadoMapper programaMapper;
+    private final SubprogramaMapper subprogramaMapper;
+
+    /**
+     * Programa con todos sus subprogramas ordenados, en 4 consultas
+     */
+    @Transactional(readOnly = true)
+    public Optional<ProgramaPersonalizado> cargarPrograma(Long programaId) {
+        var programa = programaRepository.findByIdWithSubprogramas(programaId);
+        if (programa.isEmpty()) {
+            return Optional.empty();
+        }
+        cargarColecciones(programaId);
+        ProgramaPersonalizado modelo = programaMapper.toModel(programa.get());
+        modelo.getSubprogramas().sort(Comparator.comparing(Subprograma::getOrden,
+            Comparator.nullsLast(Comparator.naturalOrder())));
+        return Optional.of(modelo);
+    }
+
+    /**
+     * Subprogramas del programa ordenados, con ejercicios, pasos e imágenes
+     */
+    @Transactional(readOnly = true)
+    public List<Subprograma> cargarSubprogramas(Long programaId) {
+        List<SubprogramaEntity> subprogramas = cargarColecciones(programaId);
+        return subprogramas.stream()
+            .sorted(Comparator.comparing(SubprogramaEntity::getOrden))
+            .map(subprogramaMapper::toModel)
+            .toList();
+    }
+
+    private List<SubprogramaEntity> cargarColecciones(Long programaId) {
+        List<SubprogramaEntity> subprogramas = subprogramaRepository.findArbolEjerciciosByProgramaId(programaId);
+        if (subprogramas.isEmpty()) {
+            return subprogramas;
+        }
+        subprogramaRepository.findArbolPasosByProgramaId(programaId);
+        pasoSubprogramaRepository.findArbolImagenesByProgramaId(programaId);
+        return subprogramas;
+    }
+}
@@ -0,0 +1,343 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proyectofisio.domain.model.RegistroEjercicio;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Acumula en memoria las series que los pacientes marcan como hechas y las vuelca por lotes.
+ *
+ * Cada volcado es una transacción con tres sentencias, sea cual sea el tamaño del lote:
+ * el INSERT ... SELECT FROM unnest(...) en registros_ejercicio y dos upsert que suman
+ * el lote a los totales de adherencia_tokens y adherencia_programas. Así el panel lee totales
+ * ya calculados en lugar de recorrer los registros.
+ *
+ * Que el ejercicio pertenezca al subprograma se comprueba al aceptar el registro, contra la
+ * versión publicada que ve el paciente; aquí no se vuelve a mirar el borrador, que puede haber
+ * cambiado desde entonces.
+ *
+ * Los registros pendientes viven solo en memoria: una caída del proceso pierde como mucho
+ * un intervalo de volcado. Si la cola se llena se rechazan nuevos registros.
+ */
+@Component
+@Slf4j
+public class RegistroEjercicioBuffer implements MeterBinder {
+
+    private static final String INSERT_REGISTROS =
+            "INSERT INTO registros_ejercicio (access_token_id, programa_personalizado_id, subprograma_id, "
+            + "ejercicio_id, series, fecha_registro) "
+            + "SELECT r.access_token_id, r.programa_id, r.subprograma_id, r.ejercicio_id, r.series, r.fecha "
+            + "FROM unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[], ?::int[], ?::timestamp[]) "
+            + "AS r(access_token_id, programa_id, subprograma_id, ejercicio_id, series, fecha) "
+            + "RETURNING access_token_id, series, fecha_registro";
+
+    // (xmax = 0) distingue las filas insertadas de las actualizadas: cuenta los enlaces nuevos del programa
+    private static final String UPSERT_TOKENS =
+            "INSERT INTO adherencia_tokens AS a (access_token_id, programa_personalizado_id, paciente_id, "
+            + "series_completadas, registros, primera_actividad, ultima_actividad) "
+            + "SELECT * FROM unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[], ?::timestamp[], ?::timestamp[]) "
+            + "ON CONFLICT (access_token_id) DO UPDATE SET "
+            + "series_completadas = a.series_completadas + EXCLUDED.series_completadas, "
+            + "registros = a.registros + EXCLUDED.registros, "
+            + "primera_actividad = LEAST(a.primera_actividad, EXCLUDED.primera_actividad), "
+            + "ultima_actividad = GREATEST(a.ultima_actividad, EXCLUDED.ultima_actividad) "
+            + "RETURNING programa_personalizado_id, (xmax = 0) AS nuevo";
+
+    private static final String UPSERT_PROGRAMAS =
+            "INSERT INTO adherencia_programas AS a (programa_personalizado_id, series_completadas, registros, "
+            + "tokens_activos, ultima_actividad) "
+            + "SELECT * FROM unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::int[], ?::timestamp[]) "
+            + "ON CONFLICT (programa_personalizado_id) DO UPDATE SET "
+            + "series_completadas = a.series_completadas + EXCLUDED.series_completadas, "
+            + "registros = a.registros + EXCLUDED.registros, "
+            + "tokens_activos = a.tokens_activos + EXCLUDED.tokens_activos, "
+            + "ultima_actividad = GREATEST(a.ultima_actividad, EXCLUDED.ultima_actividad)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentLinkedQueue<RegistroEjercicio> pendientes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numeroPendientes = new AtomicInteger();
+    // Un solo volcado a la vez: el programado o el de cierre
+    private final ReentrantLock volcando = new ReentrantLock();
+    private final LongAdder aceptados = new LongAdder();
+    private final LongAdder rechazados = new LongAdder();
+    private final LongAdder guardados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+
+    @Value("${app.registros-ejercicio.max-pending:50000}")
+    private int maxPendientes;
+
+    @Value("${app.registros-ejercicio.batch-size:1000}")
+    private int tamanoLote;
+
+    public RegistroEjercicioBuffer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Encola el registro para el siguiente volcado
+     *
+     * @return false si la cola está llena y el registro no se ha aceptado
+     */
+    public boolean registrar(RegistroEjercicio registro) {
+        if (numeroPendientes.incrementAndGet() > maxPendientes) {
+            numeroPendientes.decrementAndGet();
+            rechazados.increment();
+            return false;
+        }
+        pendientes.add(registro);
+        aceptados.increment();
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.registros-ejercicio.flush-interval-ms:2000}")
+    public void volcar() {
+        if (!volcando.tryLock()) {
+            return;
+        }
+        try {
+            List<RegistroEjercicio> lote;
+            while (!(lote = extraerLote()).isEmpty()) {
+                if (!guardarLote(lote)) {
+                    break;
+                }
+            }
+        } finally {
+            volcando.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        volcando.lock();
+        try {
+            List<RegistroEjercicio> lote;
+            while (!(lote = extraerLote()).isEmpty()) {
+                if (!guardarLote(lote)) {
+                    log.warn("Se pierden {} registros de ejercicio pendientes al cerrar", numeroPendientes.get());
+                    break;
+                }
+            }
+        } finally {
+            volcando.unlock();
+        }
+    }
+
+    public int size() {
+        return numeroPendientes.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("registros.ejercicio", aceptados, LongAdder::sum)
+                .tag("result", "accepted")
+                .description("Series completadas recibidas desde el portal")
+                .register(registry);
+        FunctionCounter.builder("registros.ejercicio", rechazados, LongAdder::sum)
+                .tag("result", "rejected")
+                .description("Series completadas recibidas desde el portal")
+                .register(registry);
+        FunctionCounter.builder("registros.ejercicio.flushed", guardados, LongAdder::sum)
+                .tag("result", "stored")
+                .description("Registros procesados en los volcados por lotes")
+                .register(registry);
+        FunctionCounter.builder("registros.ejercicio.flushed", descartados, LongAdder::sum)
+                .tag("result", "discarded")
+                .description("Registros procesados en los volcados por lotes")
+                .register(registry);
+        Gauge.builder("registros.ejercicio.pending", numeroPendientes, AtomicInteger::get)
+                .description("Registros en memoria pendientes de volcar")
+                .register(registry);
+    }
+
+    private List<RegistroEjercicio> extraerLote() {
+        List<RegistroEjercicio> lote = new ArrayList<>(Math.min(tamanoLote, Math.max(numeroPendientes.get(), 1)));
+        RegistroEjercicio registro;
+        while (lote.size() < tamanoLote && (registro = pendientes.poll()) != null) {
+            numeroPendientes.decrementAndGet();
+            lote.add(registro);
+        }
+        return lote;
+    }
+
+    /**
+     * Guarda el lote y actualiza los totales en una transacción; si falla, lo devuelve a la cola
+     */
+    private boolean guardarLote(List<RegistroEjercicio> lote) {
+        try {
+            int insertados = transactionTemplate.execute(status -> insertarYAcumular(lote));
+            guardados.add(insertados);
+            descartados.add(lote.size() - insertados);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("No se pudo volcar un lote de {} registros de ejercicio: {}", lote.size(), e.getMessage());
+            for (RegistroEjercicio registro : lote) {
+                if (numeroPendientes.incrementAndGet() > maxPendientes) {
+                    numeroPendientes.decrementAndGet();
+                    descartados.increment();
+                } else {
+                    pendientes.add(registro);
+                }
+            }
+            return false;
+        }
+    }
+
+    private int insertarYAcumular(List<RegistroEjercicio> lote) {
+        Long[] tokens = new Long[lote.size()];
+        Long[] programas = new Long[lote.size()];
+        Long[] subprogramas = new Long[lote.size()];
+        Long[] ejercicios = new Long[lote.size()];
+        Integer[] series = new Integer[lote.size()];
+        Timestamp[] fechas = new Timestamp[lote.size()];
+        Map<Long, RegistroEjercicio> enlaces = new HashMap<>();
+        for (int i = 0; i < lote.size(); i++) {
+            RegistroEjercicio registro = lote.get(i);
+            tokens[i] = registro.getAccessTokenId();
+            programas[i] = registro.getProgramaPersonalizadoId();
+            subprogramas[i] = registro.getSubprogramaId();
+            ejercicios[i] = registro.getEjercicioId();
+            series[i] = registro.getSeries();
+            fechas[i] = Timestamp.valueOf(registro.getFechaRegistro());
+            enlaces.putIfAbsent(registro.getAccessTokenId(), registro);
+        }
+
+        // Totales del lote por enlace, ordenados por id para bloquear las filas siempre en el mismo orden
+        Map<Long, Acumulado> porToken = new TreeMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_REGISTROS);
+            ps.setArray(1, con.createArrayOf("bigint", tokens));
+            ps.setArray(2, con.createArrayOf("bigint", programas));
+            ps.setArray(3, con.createArrayOf("bigint", subprogramas));
+            ps.setArray(4, con.createArrayOf("bigint", ejercicios));
+            ps.setArray(5, con.createArrayOf("integer", series));
+            ps.setArray(6, con.createArrayOf("timestamp", fechas));
+            return ps;
+        }, rs -> {
+            porToken.computeIfAbsent(rs.getLong("access_token_id"), id -> new Acumulado())
+                    .sumar(rs.getInt("series"), rs.getTimestamp("fecha_registro").toLocalDateTime());
+        });
+        if (porToken.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Acumulado> porPrograma = new TreeMap<>();
+        Map<Long, Integer> tokensNuevos = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(UPSERT_TOKENS);
+            int n = porToken.size();
+            Long[] ids = new Long[n];
+            Long[] programaIds = new Long[n];
+            Long[] pacienteIds = new Long[n];
+            Long[] totalSeries = new Long[n];
+            Long[] totalRegistros = new Long[n];
+            Timestamp[] primeras = new Timestamp[n];
+            Timestamp[] ultimas = new Timestamp[n];
+            int i = 0;
+            for (Map.Entry<Long, Acumulado> entrada : porToken.entrySet()) {
+                RegistroEjercicio enlace = enlaces.get(entrada.getKey());
+                Acumulado acumulado = entrada.getValue();
+                ids[i] = entrada.getKey();
+                programaIds[i] = enlace.getProgramaPersonalizadoId();
+                pacienteIds[i] = enlace.getPacienteId();
+                totalSeries[i] = acumulado.series;
+                totalRegistros[i] = acumulado.registros;
+                primeras[i] = Timestamp.valueOf(acumulado.primera);
+                ultimas[i] = Timestamp.valueOf(acumulado.ultima);
+                porPrograma.computeIfAbsent(enlace.getProgramaPersonalizadoId(), id -> new Acumulado()).sumar(acumulado);
+                i++;
+            }
+            bindArrays(con, ps, "bigint", ids, programaIds, pacienteIds, totalSeries, totalRegistros);
+            ps.setArray(6, con.createArrayOf("timestamp", primeras));
+            ps.setArray(7, con.createArrayOf("timestamp", ultimas));
+            return ps;
+        }, rs -> {
+            if (rs.getBoolean("nuevo")) {
+                tokensNuevos.merge(rs.getLong("programa_personalizado_id"), 1, Integer::sum);
+            }
+        });
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(UPSERT_PROGRAMAS);
+            int n = porPrograma.size();
+            Long[] ids = new Long[n];
+            Long[] totalSeries = new Long[n];
+            Long[] totalRegistros = new Long[n];
+            Integer[] nuevos = new Integer[n];
+            Timestamp[] ultimas = new Timestamp[n];
+            int i = 0;
+            for (Map.Entry<Long, Acumulado> entrada : porPrograma.entrySet()) {
+                ids[i] = entrada.getKey();
+                totalSeries[i] = entrada.getValue().series;
+                totalRegistros[i] = entrada.getValue().registros;
+                nuevos[i] = tokensNuevos.getOrDefault(entrada.getKey(), 0);
+                ultimas[i] = Timestamp.valueOf(entrada.getValue().ultima);
+                i++;
+            }
+            bindArrays(con, ps, "bigint", ids, totalSeries, totalRegistros);
+            ps.setArray(4, con.createArrayOf("integer", nuevos));
+            ps.setArray(5, con.createArrayOf("timestamp", ultimas));
+            return ps;
+        });
+
+        return porToken.values().stream().mapToInt(a -> (int) a.registros).sum();
+    }
+
+    private static void bindArrays(Connection con, PreparedStatement ps, String tipo, Object[]... arrays)
+            throws SQLException {
+        for (int i = 0; i < arrays.length; i++) {
+            ps.setArray(i + 1, con.createArrayOf(tipo, arrays[i]));
+        }
+    }
+
+    // Totales de un enlace o programa dentro de un lote
+    private static final class Acumulado {
+        private long series;
+        private long registros;
+        private LocalDateTime primera;
+        private LocalDateTime ultima;
+
+        void sumar(int seriesRegistro, LocalDateTime fecha) {
+            series += seriesRegistro;
+            registros++;
+            primera = primera == null || fecha.isBefore(primera) ? fecha : primera;
+            ultima = ultima == null || fecha.isAfter(ultima) ? fecha : ultima;
+        }
+
+        void sumar(Acumulado otro) {
+            series += otro.series;
+            registros += otro.registros;
+            primera = primera == null || otro.primera.isBefore(primera) ? otro.primera : primera;
+            ultima = ultima == null || otro.ultima.isAfter(ultima) ? otro.ultima : ultima;
+        }
+    }
+}
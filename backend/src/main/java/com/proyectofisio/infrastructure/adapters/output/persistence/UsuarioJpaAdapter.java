@@ -13,30 +13,42 @@ import com.proyectofisio.domain.model.enums.RolUsuario;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.UsuarioEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.mapper.UsuarioMapper;
 import com.proyectofisio.infrastructure.adapters.output.persistence.repository.UsuarioRepository;
+import com.proyectofisio.infrastructure.config.UsuarioCache;
 
+// Las búsquedas por id y por email pasan por UsuarioCache; guardar o borrar invalida la entrada
 @Component
 public class UsuarioJpaAdapter implements UsuarioRepositoryPort {
 
     private final UsuarioRepository usuarioRepository;
     private final UsuarioMapper usuarioMapper;
+    private final UsuarioCache usuarioCache;
 
     @Autowired
-    public UsuarioJpaAdapter(UsuarioRepository usuarioRepository, UsuarioMapper usuarioMapper) {
+    public UsuarioJpaAdapter(UsuarioRepository usuarioRepository, UsuarioMapper usuarioMapper,
+            UsuarioCache usuarioCache) {
         this.usuarioRepository = usuarioRepository;
         this.usuarioMapper = usuarioMapper;
+        this.usuarioCache = usuarioCache;
     }
 
     @Override
     public Usuario save(Usuario usuario) {
         UsuarioEntity entity = usuarioMapper.toEntity(usuario);
         UsuarioEntity savedEntity = usuarioRepository.save(entity);
+        usuarioCache.invalidate(savedEntity.getId());
         return usuarioMapper.toDomain(savedEntity);
     }
 
     @Override
     public Optional<Usuario> findById(Long id) {
-        return usuarioRepository.findById(id)
+        Optional<Usuario> cacheado = usuarioCache.getPorId(id);
+        if (cacheado.isPresent()) {
+            return cacheado;
+        }
+        Optional<Usuario> usuario = usuarioRepository.findById(id)
                 .map(usuarioMapper::toDomain);
+        usuario.ifPresent(usuarioCache::put);
+        return usuario;
     }
 
     @Override
@@ -62,8 +74,14 @@ public class UsuarioJpaAdapter implements UsuarioRepositoryPort {
 
     @Override
     public Optional<Usuario> findByEmail(String email) {
-        return usuarioRepository.findByEmail(email)
+        Optional<Usuario> cacheado = usuarioCache.getPorEmail(email);
+        if (cacheado.isPresent()) {
+            return cacheado;
+        }
+        Optional<Usuario> usuario = usuarioRepository.findByEmail(email)
                 .map(usuarioMapper::toDomain);
+        usuario.ifPresent(usuarioCache::put);
+        return usuario;
     }
 
     @Override
@@ -75,6 +93,7 @@ public class UsuarioJpaAdapter implements UsuarioRepositoryPort {
     @Override
     public void deleteById(Long id) {
         usuarioRepository.deleteById(id);
+        usuarioCache.invalidate(id);
     }
 
     @Override
@@ -13,6 +13,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -23,7 +24,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "access_tokens")
+// Listado de enlaces de un programa paginado por id (ver AccessTokenRepository.findResumenByProgramaId)
+@Table(name = "access_tokens", indexes = {
+        @Index(name = "idx_access_tokens_programa_id", columnList = "programa_personalizado_id, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -45,6 +49,10 @@ public class AccessTokenEntity {
     @JoinColumn(name = "programa_personalizado_id", nullable = false)
     private ProgramaPersonalizadoEntity programaPersonalizado;
     
+    // Versión publicada que ve el paciente (programas_publicados); null si el programa no se había publicado
+    @Column(name = "programa_publicado_id")
+    private Long programaPublicadoId;
+    
     @OneToMany(mappedBy = "accessToken", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<ComentarioPacienteEntity> comentariosPaciente = new ArrayList<>();
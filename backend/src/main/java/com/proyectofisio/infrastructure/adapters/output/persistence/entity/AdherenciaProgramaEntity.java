@@ -0,0 +1,41 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totales de actividad por programa, actualizados de forma incremental en cada volcado de registros
+ */
+@Entity
+@Table(name = "adherencia_programas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdherenciaProgramaEntity {
+
+    @Id
+    @Column(name = "programa_personalizado_id")
+    private Long programaPersonalizadoId;
+
+    @Column(name = "series_completadas", nullable = false)
+    private Long seriesCompletadas;
+
+    @Column(nullable = false)
+    private Long registros;
+
+    // Enlaces con al menos un registro
+    @Column(name = "tokens_activos", nullable = false)
+    private Integer tokensActivos;
+
+    @Column(name = "ultima_actividad", nullable = false)
+    private LocalDateTime ultimaActividad;
+}
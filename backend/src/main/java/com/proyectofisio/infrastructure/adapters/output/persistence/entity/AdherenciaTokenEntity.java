@@ -0,0 +1,49 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totales de actividad por enlace, actualizados de forma incremental en cada volcado de registros
+ */
+@Entity
+@Table(name = "adherencia_tokens", indexes = {
+        @Index(name = "idx_adherencia_tokens_programa", columnList = "programa_personalizado_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdherenciaTokenEntity {
+
+    @Id
+    @Column(name = "access_token_id")
+    private Long accessTokenId;
+
+    @Column(name = "programa_personalizado_id", nullable = false)
+    private Long programaPersonalizadoId;
+
+    @Column(name = "paciente_id", nullable = false)
+    private Long pacienteId;
+
+    @Column(name = "series_completadas", nullable = false)
+    private Long seriesCompletadas;
+
+    @Column(nullable = false)
+    private Long registros;
+
+    @Column(name = "primera_actividad", nullable = false)
+    private LocalDateTime primeraActividad;
+
+    @Column(name = "ultima_actividad", nullable = false)
+    private LocalDateTime ultimaActividad;
+}
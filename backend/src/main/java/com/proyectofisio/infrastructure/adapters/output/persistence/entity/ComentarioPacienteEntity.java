@@ -9,6 +9,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -18,7 +19,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "comentarios_paciente")
+@Table(name = "comentarios_paciente", indexes = {
+        @Index(name = "idx_comentarios_paciente_no_leidos", columnList = "leido, fecha_creacion")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,36 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Comentarios de pacientes sin leer de cada programa. Se suma al crear un comentario y se resta
+ * al marcarlo como leído o al borrar su subprograma; el total de la empresa es la suma de sus programas.
+ */
+@Entity
+@Table(name = "contadores_comentarios_no_leidos", indexes = {
+        @Index(name = "idx_contadores_comentarios_empresa", columnList = "empresa_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContadorComentariosEntity {
+
+    @Id
+    @Column(name = "programa_personalizado_id")
+    private Long programaPersonalizadoId;
+
+    @Column(name = "empresa_id", nullable = false)
+    private Long empresaId;
+
+    @Column(name = "no_leidos", nullable = false)
+    private Integer noLeidos;
+}
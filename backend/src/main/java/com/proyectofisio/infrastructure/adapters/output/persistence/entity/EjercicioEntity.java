@@ -12,6 +12,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -22,7 +23,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "ejercicios")
+// Biblioteca de cada empresa; la búsqueda por texto usa además un índice de trigramas (ver EjercicioBuscador)
+@Table(name = "ejercicios", indexes = {
+        @Index(name = "idx_ejercicios_empresa_id", columnList = "empresa_id, nombre")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,38 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Access token (por su jti) revocado antes de su expiración natural.
+ * La fila deja de ser útil en cuanto el token expira y se purga periódicamente.
+ */
+@Entity
+@Table(name = "jwt_revocados", indexes = {
+        @Index(name = "idx_jwt_revocados_fecha_revocacion", columnList = "fecha_revocacion")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JwtRevocadoEntity {
+
+    @Id
+    @Column(length = 36)
+    private String jti;
+    
+    @Column(name = "fecha_expiracion", nullable = false)
+    private LocalDateTime fechaExpiracion;
+    
+    @Column(name = "fecha_revocacion", nullable = false)
+    private LocalDateTime fechaRevocacion;
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
@@ -45,7 +46,10 @@ public class PasoSubprogramaEntity {
     @Column(name = "es_enlace_externo")
     private Boolean esEnlaceExterno;
     
+    // Nombres explícitos (los que Hibernate genera por defecto) porque ProgramaPersonalizadoCloner los usa en SQL
     @ElementCollection
+    @CollectionTable(name = "paso_subprograma_entity_imagenes_urls",
+            joinColumns = @JoinColumn(name = "paso_subprograma_entity_id"))
     @Column(name = "imagen_url")
     private List<String> imagenesUrls = new ArrayList<>();
     
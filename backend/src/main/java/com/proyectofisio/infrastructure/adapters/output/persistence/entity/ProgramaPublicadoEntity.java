@@ -0,0 +1,58 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Entity
+@Immutable
+@Table(name = "programas_publicados", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_programas_publicados_version", columnNames = { "programa_personalizado_id", "version" })
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProgramaPublicadoEntity {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "programa_personalizado_id", nullable = false, updatable = false)
+    @ToString.Exclude
+    private ProgramaPersonalizadoEntity programaPersonalizado;
+    
+    @Column(nullable = false, updatable = false)
+    private Integer version;
+    
+    // Programa completo (subprogramas, ejercicios y pasos) en el JSON que recibe el portal
+    @Column(nullable = false, updatable = false, columnDefinition = "text")
+    @ToString.Exclude
+    private String contenido;
+    
+    @Column(name = "publicado_por_usuario_id", updatable = false)
+    private Long publicadoPorUsuarioId;
+    
+    @CreationTimestamp
+    @Column(name = "fecha_publicacion", nullable = false, updatable = false)
+    private LocalDateTime fechaPublicacion;
+}
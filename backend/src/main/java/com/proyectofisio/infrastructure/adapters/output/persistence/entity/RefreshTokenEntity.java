@@ -0,0 +1,63 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Refresh token de una sesión. Solo se guarda el hash SHA-256 del valor entregado al cliente.
+ */
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_usuario", columnList = "usuario_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+    private String tokenHash;
+    
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+    
+    // jti del último access token emitido con este refresh token
+    @Column(name = "access_jti", length = 36)
+    private String accessJti;
+    
+    @Column(name = "access_expiracion")
+    private LocalDateTime accessExpiracion;
+    
+    @CreationTimestamp
+    @Column(name = "fecha_creacion", updatable = false)
+    private LocalDateTime fechaCreacion;
+    
+    @Column(name = "fecha_expiracion", nullable = false)
+    private LocalDateTime fechaExpiracion;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean revocado = false;
+    
+    // Momento en que se rotó; permite distinguir una carrera entre pestañas de un robo
+    @Column(name = "fecha_rotacion")
+    private LocalDateTime fechaRotacion;
+}
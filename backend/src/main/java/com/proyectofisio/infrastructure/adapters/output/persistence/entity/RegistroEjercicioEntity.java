@@ -0,0 +1,56 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Registro de solo inserción de las series completadas en el portal.
+ * Se escribe por lotes desde RegistroEjercicioBuffer; el panel lee los agregados
+ * (adherencia_tokens, adherencia_programas), no esta tabla.
+ */
+@Entity
+@Immutable
+@Table(name = "registros_ejercicio", indexes = {
+        @Index(name = "idx_registros_ejercicio_token_fecha", columnList = "access_token_id, fecha_registro")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistroEjercicioEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "access_token_id", nullable = false)
+    private Long accessTokenId;
+
+    @Column(name = "programa_personalizado_id", nullable = false)
+    private Long programaPersonalizadoId;
+
+    @Column(name = "subprograma_id", nullable = false)
+    private Long subprogramaId;
+
+    @Column(name = "ejercicio_id", nullable = false)
+    private Long ejercicioId;
+
+    @Column(nullable = false)
+    private Integer series;
+
+    @Column(name = "fecha_registro", nullable = false)
+    private LocalDateTime fechaRegistro;
+}
@@ -9,8 +9,6 @@ import com.proyectofisio.domain.model.AccessToken;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.AccessTokenEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.PacienteEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ProgramaPersonalizadoEntity;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.PacienteRepository;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.ProgramaPersonalizadoRepository;
 
 import lombok.RequiredArgsConstructor;
 
@@ -18,8 +16,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class AccessTokenMapper {
     
-    private final PacienteRepository pacienteRepository;
-    private final ProgramaPersonalizadoRepository programaPersonalizadoRepository;
+    private final ReferenciaResolver referencias;
     
     public AccessToken toModel(AccessTokenEntity entity) {
         if (entity == null) {
@@ -32,6 +29,7 @@ public class AccessTokenMapper {
             .pacienteId(entity.getPaciente() != null ? entity.getPaciente().getId() : null)
             .programaPersonalizadoId(entity.getProgramaPersonalizado() != null ? 
                 entity.getProgramaPersonalizado().getId() : null)
+            .programaPublicadoId(entity.getProgramaPublicadoId())
             .fechaCreacion(entity.getFechaCreacion())
             .fechaExpiracion(entity.getFechaExpiracion())
             .usado(entity.getUsado())
@@ -43,23 +41,19 @@ public class AccessTokenMapper {
             return null;
         }
         
-        PacienteEntity pacienteEntity = null;
-        if (model.getPacienteId() != null) {
-            pacienteEntity = pacienteRepository.findById(model.getPacienteId())
-                .orElseThrow(() -> new IllegalArgumentException("Paciente no encontrado"));
-        }
-        
-        ProgramaPersonalizadoEntity programaEntity = null;
-        if (model.getProgramaPersonalizadoId() != null) {
-            programaEntity = programaPersonalizadoRepository.findById(model.getProgramaPersonalizadoId())
-                .orElseThrow(() -> new IllegalArgumentException("Programa personalizado no encontrado"));
-        }
+        var refs = referencias.lote();
+        PacienteEntity pacienteEntity = refs.referencia(PacienteEntity.class, model.getPacienteId(),
+            "Paciente no encontrado");
+        ProgramaPersonalizadoEntity programaEntity = refs.referencia(ProgramaPersonalizadoEntity.class,
+            model.getProgramaPersonalizadoId(), "Programa personalizado no encontrado");
+        refs.comprobar();
         
         return AccessTokenEntity.builder()
             .id(model.getId())
             .token(model.getToken())
             .paciente(pacienteEntity)
             .programaPersonalizado(programaEntity)
+            .programaPublicadoId(model.getProgramaPublicadoId())
             .fechaCreacion(model.getFechaCreacion())
             .fechaExpiracion(model.getFechaExpiracion())
             .usado(model.getUsado())
@@ -10,33 +10,15 @@ import com.proyectofisio.infrastructure.adapters.output.persistence.entity.Pacie
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.SalaEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ServicioEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.UsuarioEntity;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.BonoPacienteRepository;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.PacienteRepository;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.SalaRepository;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.ServicioRepository;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.UsuarioRepository;
 
 @Component
 public class AgendaMapper {
     
-    private final PacienteRepository pacienteRepository;
-    private final UsuarioRepository usuarioRepository;
-    private final SalaRepository salaRepository;
-    private final ServicioRepository servicioRepository;
-    private final BonoPacienteRepository bonoPacienteRepository;
+    private final ReferenciaResolver referencias;
     
     @Autowired
-    public AgendaMapper(
-            PacienteRepository pacienteRepository, 
-            UsuarioRepository usuarioRepository,
-            SalaRepository salaRepository,
-            ServicioRepository servicioRepository,
-            BonoPacienteRepository bonoPacienteRepository) {
-        this.pacienteRepository = pacienteRepository;
-        this.usuarioRepository = usuarioRepository;
-        this.salaRepository = salaRepository;
-        this.servicioRepository = servicioRepository;
-        this.bonoPacienteRepository = bonoPacienteRepository;
+    public AgendaMapper(ReferenciaResolver referencias) {
+        this.referencias = referencias;
     }
     
     public Agenda toModel(AgendaEntity entity) {
@@ -65,32 +47,19 @@ public class AgendaMapper {
             return null;
         }
         
-        // Obtener las entidades relacionadas
-        PacienteEntity pacienteEntity = null;
-        if (model.getPacienteId() != null) {
-            pacienteEntity = pacienteRepository.findById(model.getPacienteId()).orElse(null);
-        }
-        
-        UsuarioEntity usuarioEntity = null;
-        if (model.getUsuarioId() != null) {
-            usuarioEntity = usuarioRepository.findById(model.getUsuarioId())
-                    .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + model.getUsuarioId()));
-        }
-        
-        SalaEntity salaEntity = null;
-        if (model.getSalaId() != null) {
-            salaEntity = salaRepository.findById(model.getSalaId()).orElse(null);
-        }
-        
-        ServicioEntity servicioEntity = null;
-        if (model.getServicioId() != null) {
-            servicioEntity = servicioRepository.findById(model.getServicioId()).orElse(null);
-        }
-        
-        BonoPacienteEntity bonoEntity = null;
-        if (model.getBonoId() != null) {
-            bonoEntity = bonoPacienteRepository.findById(model.getBonoId()).orElse(null);
-        }
+        // Referencias a las entidades relacionadas, comprobadas en una sola consulta
+        var refs = referencias.lote();
+        PacienteEntity pacienteEntity = refs.referencia(PacienteEntity.class, model.getPacienteId(),
+                "Paciente no encontrado con ID: " + model.getPacienteId());
+        UsuarioEntity usuarioEntity = refs.referencia(UsuarioEntity.class, model.getUsuarioId(),
+                "Usuario no encontrado con ID: " + model.getUsuarioId());
+        SalaEntity salaEntity = refs.referencia(SalaEntity.class, model.getSalaId(),
+                "Sala no encontrada con ID: " + model.getSalaId());
+        ServicioEntity servicioEntity = refs.referencia(ServicioEntity.class, model.getServicioId(),
+                "Servicio no encontrado con ID: " + model.getServicioId());
+        BonoPacienteEntity bonoEntity = refs.referencia(BonoPacienteEntity.class, model.getBonoId(),
+                "Bono no encontrado con ID: " + model.getBonoId());
+        refs.comprobar();
         
         return AgendaEntity.builder()
                 .id(model.getId())
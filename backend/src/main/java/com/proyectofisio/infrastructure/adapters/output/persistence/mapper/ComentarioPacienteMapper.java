@@ -10,7 +10,6 @@ import com.proyectofisio.infrastructure.adapters.output.persistence.entity.Acces
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ComentarioPacienteEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.SubprogramaEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.repository.AccessTokenRepository;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.SubprogramaRepository;
 
 import lombok.RequiredArgsConstructor;
 
@@ -18,7 +17,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ComentarioPacienteMapper {
     
-    private final SubprogramaRepository subprogramaRepository;
+    private final ReferenciaResolver referencias;
     private final AccessTokenRepository accessTokenRepository;
     
     public ComentarioPaciente toModel(ComentarioPacienteEntity entity) {
@@ -51,12 +50,12 @@ public class ComentarioPacienteMapper {
             return null;
         }
         
-        SubprogramaEntity subprogramaEntity = null;
-        if (model.getSubprogramaId() != null) {
-            subprogramaEntity = subprogramaRepository.findById(model.getSubprogramaId())
-                .orElseThrow(() -> new IllegalArgumentException("Subprograma no encontrado con id: " + model.getSubprogramaId()));
-        }
+        var refs = referencias.lote();
+        SubprogramaEntity subprogramaEntity = refs.referencia(SubprogramaEntity.class, model.getSubprogramaId(),
+            "Subprograma no encontrado con id: " + model.getSubprogramaId());
+        refs.comprobar();
         
+        // El token se busca por su UUID y su valor se devuelve en la respuesta, así que se carga
         AccessTokenEntity accessTokenEntity = null;
         if (model.getToken() != null) {
             accessTokenEntity = accessTokenRepository.findByToken(model.getToken())
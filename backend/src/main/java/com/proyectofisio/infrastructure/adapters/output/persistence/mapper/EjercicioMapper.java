@@ -9,8 +9,6 @@ import com.proyectofisio.domain.model.Ejercicio;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EjercicioEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EmpresaEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.UsuarioEntity;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.EmpresaRepository;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.UsuarioRepository;
 
 import lombok.RequiredArgsConstructor;
 
@@ -18,8 +16,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class EjercicioMapper {
     
-    private final EmpresaRepository empresaRepository;
-    private final UsuarioRepository usuarioRepository;
+    private final ReferenciaResolver referencias;
     
     public Ejercicio toModel(EjercicioEntity entity) {
         if (entity == null) {
@@ -48,17 +45,11 @@ public class EjercicioMapper {
             return null;
         }
         
-        EmpresaEntity empresaEntity = null;
-        if (model.getEmpresaId() != null) {
-            empresaEntity = empresaRepository.findById(model.getEmpresaId())
-                .orElseThrow(() -> new IllegalArgumentException("Empresa no encontrada"));
-        }
-        
-        UsuarioEntity usuarioEntity = null;
-        if (model.getCreadoPorUsuarioId() != null) {
-            usuarioEntity = usuarioRepository.findById(model.getCreadoPorUsuarioId())
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
-        }
+        var refs = referencias.lote();
+        EmpresaEntity empresaEntity = refs.referencia(EmpresaEntity.class, model.getEmpresaId(), "Empresa no encontrada");
+        UsuarioEntity usuarioEntity = refs.referencia(UsuarioEntity.class, model.getCreadoPorUsuarioId(),
+            "Usuario no encontrado");
+        refs.comprobar();
         
         return EjercicioEntity.builder()
             .id(model.getId())
@@ -6,16 +6,15 @@ import org.springframework.stereotype.Component;
 import com.proyectofisio.domain.model.Paciente;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EmpresaEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.PacienteEntity;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.EmpresaRepository;
 
 @Component
 public class PacienteMapper {
 
-    private final EmpresaRepository empresaRepository;
+    private final ReferenciaResolver referencias;
 
     @Autowired
-    public PacienteMapper(EmpresaRepository empresaRepository) {
-        this.empresaRepository = empresaRepository;
+    public PacienteMapper(ReferenciaResolver referencias) {
+        this.referencias = referencias;
     }
 
     public Paciente toDomain(PacienteEntity entity) {
@@ -56,7 +55,10 @@ public class PacienteMapper {
                 .fechaAlta(domain.getFechaAlta());
 
         if (domain.getEmpresaId() != null) {
-            EmpresaEntity empresaEntity = empresaRepository.findById(domain.getEmpresaId()).orElse(null);
+            var refs = referencias.lote();
+            EmpresaEntity empresaEntity = refs.referencia(EmpresaEntity.class, domain.getEmpresaId(),
+                    "Empresa no encontrada con ID: " + domain.getEmpresaId());
+            refs.comprobar();
             builder.empresa(empresaEntity);
         }
 
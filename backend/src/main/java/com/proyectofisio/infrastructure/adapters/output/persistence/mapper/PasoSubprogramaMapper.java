@@ -9,13 +9,12 @@ import org.springframework.stereotype.Component;
 import com.proyectofisio.domain.model.PasoSubprograma;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.PasoSubprogramaEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.SubprogramaEntity;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.SubprogramaRepository;
 
 @Component
 public class PasoSubprogramaMapper {
     
     @Autowired
-    private SubprogramaRepository subprogramaRepository;
+    private ReferenciaResolver referencias;
     
     public PasoSubprograma toModel(PasoSubprogramaEntity entity) {
         if (entity == null) {
@@ -40,11 +39,10 @@ public class PasoSubprogramaMapper {
             return null;
         }
         
-        SubprogramaEntity subprogramaEntity = null;
-        if (model.getSubprogramaId() != null) {
-            subprogramaEntity = subprogramaRepository.findById(model.getSubprogramaId())
-                .orElseThrow(() -> new IllegalArgumentException("Subprograma no encontrado"));
-        }
+        var refs = referencias.lote();
+        SubprogramaEntity subprogramaEntity = refs.referencia(SubprogramaEntity.class, model.getSubprogramaId(),
+            "Subprograma no encontrado");
+        refs.comprobar();
         
         return PasoSubprogramaEntity.builder()
             .id(model.getId())
@@ -11,8 +11,6 @@ import com.proyectofisio.domain.model.Subprograma;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EmpresaEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ProgramaPersonalizadoEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.UsuarioEntity;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.EmpresaRepository;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.UsuarioRepository;
 
 import lombok.RequiredArgsConstructor;
 
@@ -20,8 +18,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ProgramaPersonalizadoMapper {
     
-    private final EmpresaRepository empresaRepository;
-    private final UsuarioRepository usuarioRepository;
+    private final ReferenciaResolver referencias;
     private final SubprogramaMapper subprogramaMapper;
     
     public ProgramaPersonalizado toModel(ProgramaPersonalizadoEntity entity) {
@@ -54,17 +51,11 @@ public class ProgramaPersonalizadoMapper {
             return null;
         }
         
-        EmpresaEntity empresaEntity = null;
-        if (model.getEmpresaId() != null) {
-            empresaEntity = empresaRepository.findById(model.getEmpresaId())
-                .orElseThrow(() -> new IllegalArgumentException("Empresa no encontrada"));
-        }
-        
-        UsuarioEntity usuarioEntity = null;
-        if (model.getCreadoPorUsuarioId() != null) {
-            usuarioEntity = usuarioRepository.findById(model.getCreadoPorUsuarioId())
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
-        }
+        var refs = referencias.lote();
+        EmpresaEntity empresaEntity = refs.referencia(EmpresaEntity.class, model.getEmpresaId(), "Empresa no encontrada");
+        UsuarioEntity usuarioEntity = refs.referencia(UsuarioEntity.class, model.getCreadoPorUsuarioId(),
+            "Usuario no encontrado");
+        refs.comprobar();
         
         ProgramaPersonalizadoEntity entity = ProgramaPersonalizadoEntity.builder()
             .id(model.getId())
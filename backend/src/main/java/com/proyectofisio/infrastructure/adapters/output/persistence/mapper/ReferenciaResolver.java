@@ -0,0 +1,117 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Table;
+
+/**
+ * Resuelve las entidades relacionadas que los mappers necesitan solo para fijar una clave ajena.
+ *
+ * En lugar de cargar cada entidad con findById se usa una referencia (proxy sin inicializar) y,
+ * cuando hace falta validar que los ids existen, todas las comprobaciones de un mapeo van en una
+ * única consulta: {@code SELECT EXISTS (...), EXISTS (...)}. Las entidades que ya están cargadas
+ * en la sesión no se comprueban.
+ *
+ * <pre>
+ * var refs = referencias.lote();
+ * PacienteEntity paciente = refs.referencia(PacienteEntity.class, pacienteId, "Paciente no encontrado");
+ * SalaEntity sala = refs.referencia(SalaEntity.class, salaId, "Sala no encontrada");
+ * refs.comprobar();
+ * </pre>
+ */
+@Component
+public class ReferenciaResolver {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Class<?>, String> tablas = new ConcurrentHashMap<>();
+
+    /**
+     * Referencia sin comprobar que exista; null si el id es null
+     */
+    public <T> T referencia(Class<T> tipo, Long id) {
+        return id != null ? entityManager.getReference(tipo, id) : null;
+    }
+
+    public Lote lote() {
+        return new Lote();
+    }
+
+    /**
+     * Referencias de un mismo mapeo cuya existencia se comprueba junta
+     */
+    public final class Lote {
+
+        private final List<Pendiente> pendientes = new ArrayList<>();
+
+        /**
+         * Referencia a la entidad; si no existe, {@link #comprobar()} lanza IllegalArgumentException con el mensaje
+         */
+        public <T> T referencia(Class<T> tipo, Long id, String mensaje) {
+            if (id == null) {
+                return null;
+            }
+            T entidad = entityManager.getReference(tipo, id);
+            if (!Hibernate.isInitialized(entidad)) {
+                pendientes.add(new Pendiente(tabla(tipo), id, mensaje));
+            }
+            return entidad;
+        }
+
+        /**
+         * Comprueba en una sola consulta que existen todas las referencias pendientes
+         *
+         * @throws IllegalArgumentException con el mensaje de la primera que no exista
+         */
+        public void comprobar() {
+            if (pendientes.isEmpty()) {
+                return;
+            }
+
+            StringBuilder sql = new StringBuilder("SELECT ");
+            for (int i = 0; i < pendientes.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append("EXISTS (SELECT 1 FROM ").append(pendientes.get(i).tabla())
+                        .append(" WHERE id = ?").append(i + 1).append(')');
+            }
+            Query query = entityManager.createNativeQuery(sql.toString());
+            for (int i = 0; i < pendientes.size(); i++) {
+                query.setParameter(i + 1, pendientes.get(i).id());
+            }
+
+            Object resultado = query.getSingleResult();
+            Object[] existe = pendientes.size() == 1 ? new Object[] { resultado } : (Object[]) resultado;
+            for (int i = 0; i < pendientes.size(); i++) {
+                if (!Boolean.TRUE.equals(existe[i])) {
+                    throw new IllegalArgumentException(pendientes.get(i).mensaje());
+                }
+            }
+            pendientes.clear();
+        }
+    }
+
+    private String tabla(Class<?> tipo) {
+        return tablas.computeIfAbsent(tipo, t -> {
+            Table table = t.getAnnotation(Table.class);
+            if (table == null || table.name().isEmpty()) {
+                throw new IllegalStateException("La entidad " + t.getSimpleName() + " no declara @Table(name)");
+            }
+            return table.name();
+        });
+    }
+
+    private record Pendiente(String tabla, Long id, String mensaje) {
+    }
+}
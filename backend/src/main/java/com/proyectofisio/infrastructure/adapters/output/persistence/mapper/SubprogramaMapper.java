@@ -12,7 +12,6 @@ import com.proyectofisio.domain.model.Subprograma;
 import com.proyectofisio.domain.model.PasoSubprograma;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ProgramaPersonalizadoEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.SubprogramaEntity;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.ProgramaPersonalizadoRepository;
 
 import lombok.RequiredArgsConstructor;
 
@@ -20,7 +19,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class SubprogramaMapper {
     
-    private final ProgramaPersonalizadoRepository programaPersonalizadoRepository;
+    private final ReferenciaResolver referencias;
     @Autowired
     private EjercicioMapper ejercicioMapper;
     @Autowired
@@ -68,11 +67,10 @@ public class SubprogramaMapper {
             return null;
         }
         
-        ProgramaPersonalizadoEntity programaEntity = null;
-        if (model.getProgramaPersonalizadoId() != null) {
-            programaEntity = programaPersonalizadoRepository.findById(model.getProgramaPersonalizadoId())
-                .orElseThrow(() -> new IllegalArgumentException("Programa personalizado no encontrado"));
-        }
+        var refs = referencias.lote();
+        ProgramaPersonalizadoEntity programaEntity = refs.referencia(ProgramaPersonalizadoEntity.class,
+            model.getProgramaPersonalizadoId(), "Programa personalizado no encontrado");
+        refs.comprobar();
         
         SubprogramaEntity entity = SubprogramaEntity.builder()
             .id(model.getId())
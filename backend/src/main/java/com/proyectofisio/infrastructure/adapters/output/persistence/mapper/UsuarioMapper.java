@@ -6,16 +6,15 @@ import org.springframework.stereotype.Component;
 import com.proyectofisio.domain.model.Usuario;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EmpresaEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.UsuarioEntity;
-import com.proyectofisio.infrastructure.adapters.output.persistence.repository.EmpresaRepository;
 
 @Component
 public class UsuarioMapper {
 
-    private final EmpresaRepository empresaRepository;
+    private final ReferenciaResolver referencias;
 
     @Autowired
-    public UsuarioMapper(EmpresaRepository empresaRepository) {
-        this.empresaRepository = empresaRepository;
+    public UsuarioMapper(ReferenciaResolver referencias) {
+        this.referencias = referencias;
     }
 
     public Usuario toDomain(UsuarioEntity entity) {
@@ -60,7 +59,10 @@ public class UsuarioMapper {
                 .emailVerificado(domain.isEmailVerificado());
 
         if (domain.getEmpresaId() != null) {
-            EmpresaEntity empresaEntity = empresaRepository.findById(domain.getEmpresaId()).orElse(null);
+            var refs = referencias.lote();
+            EmpresaEntity empresaEntity = refs.referencia(EmpresaEntity.class, domain.getEmpresaId(),
+                    "Empresa no encontrada con ID: " + domain.getEmpresaId());
+            refs.comprobar();
             builder.empresa(empresaEntity);
         }
 
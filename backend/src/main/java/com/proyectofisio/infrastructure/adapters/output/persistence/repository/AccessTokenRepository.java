@@ -1,12 +1,18 @@
 package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.proyectofisio.domain.model.AccessTokenResumen;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.AccessTokenEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.PacienteEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ProgramaPersonalizadoEntity;
@@ -25,4 +31,27 @@ public interface AccessTokenRepository extends JpaRepository<AccessTokenEntity,
     List<AccessTokenEntity> findByPacienteId(Long pacienteId);
     
     List<AccessTokenEntity> findByPacienteIdAndProgramaPersonalizadoId(Long pacienteId, Long programaPersonalizadoId);
-} 
\ No newline at end of file
+    
+    // Listado de enlaces con paciente y programa en una consulta, del más reciente al más antiguo.
+    // Paginación por clave: antesDeId es el último id de la página anterior (null para la primera)
+    @Query("SELECT new com.proyectofisio.domain.model.AccessTokenResumen("
+            + "t.id, t.token, pa.id, pa.nombre, pa.apellidos, pr.id, pr.nombre, t.fechaCreacion, t.fechaExpiracion, t.usado) "
+            + "FROM AccessTokenEntity t JOIN t.paciente pa JOIN t.programaPersonalizado pr "
+            + "WHERE pr.id = :programaId "
+            + "AND (:antesDeId IS NULL OR t.id < :antesDeId) "
+            + "AND (:usado IS NULL OR t.usado = :usado) "
+            + "AND (:vigente IS NULL OR (:vigente = true AND t.fechaExpiracion > :ahora) "
+            + "OR (:vigente = false AND t.fechaExpiracion <= :ahora)) "
+            + "ORDER BY t.id DESC")
+    List<AccessTokenResumen> findResumenByProgramaId(@Param("programaId") Long programaId,
+            @Param("antesDeId") Long antesDeId, @Param("usado") Boolean usado, @Param("vigente") Boolean vigente,
+            @Param("ahora") LocalDateTime ahora, Pageable pageable);
+    
+    @Query("SELECT t.token FROM AccessTokenEntity t WHERE t.programaPersonalizado.id = :programaId")
+    List<UUID> findTokensByProgramaId(@Param("programaId") Long programaId);
+    
+    // Al publicar, todos los enlaces del programa pasan a la nueva versión
+    @Modifying
+    @Query("UPDATE AccessTokenEntity t SET t.programaPublicadoId = :versionId WHERE t.programaPersonalizado.id = :programaId")
+    int asignarVersionPublicada(@Param("programaId") Long programaId, @Param("versionId") Long versionId);
+}
@@ -0,0 +1,21 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.proyectofisio.domain.model.AdherenciaToken;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.AdherenciaProgramaEntity;
+
+@Repository
+public interface AdherenciaRepository extends JpaRepository<AdherenciaProgramaEntity, Long> {
+    
+    // Enlaces del programa con actividad, del más reciente al más antiguo
+    @Query("SELECT new com.proyectofisio.domain.model.AdherenciaToken("
+            + "a.accessTokenId, a.pacienteId, a.seriesCompletadas, a.registros, a.primeraActividad, a.ultimaActividad) "
+            + "FROM AdherenciaTokenEntity a WHERE a.programaPersonalizadoId = :programaId ORDER BY a.ultimaActividad DESC")
+    List<AdherenciaToken> findTokensByProgramaId(@Param("programaId") Long programaId);
+}
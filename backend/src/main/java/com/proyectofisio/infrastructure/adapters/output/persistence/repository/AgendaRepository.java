@@ -1,7 +1,6 @@
 package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
 
 import java.time.LocalDate;
-import java.time.LocalTime;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -39,16 +38,19 @@ public interface AgendaRepository extends JpaRepository<AgendaEntity, Long> {
     List<AgendaEntity> findByUsuarioIdAndFecha(@Param("usuarioId") Long usuarioId, @Param("fecha") LocalDate fecha);
     
     /**
-     * Encuentra citas que se solapan con el horario especificado.
-     * En lugar de usar funciones específicas de bases de datos para calcular el tiempo final,
-     * trasladamos esa lógica a la implementación Java en AgendaJpaAdapter.
+     * Indica si el profesional tiene otra cita ese día que se solape con [inicio, fin).
+     * Los extremos van en segundos desde medianoche para que una cita que termina pasada la
+     * medianoche no dé la vuelta; el índice (usuario_id, fecha) limita la búsqueda a ese día.
      */
-    @Query("SELECT a FROM AgendaEntity a " +
-           "WHERE a.usuario.id = :usuarioId " +
-           "AND a.fecha = :fecha " +
-           "AND a.id <> :idExcluir")
-    List<AgendaEntity> findAppointmentsByUsuarioAndFecha(
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM agenda a "
+            + "WHERE a.usuario_id = :usuarioId AND a.fecha = :fecha AND a.id <> :idExcluir "
+            + "AND EXTRACT(EPOCH FROM a.hora) < :finSegundos "
+            + "AND EXTRACT(EPOCH FROM a.hora) + a.duracion * 60 > :inicioSegundos)",
+            nativeQuery = true)
+    boolean existsSolapamiento(
         @Param("usuarioId") Long usuarioId,
-        @Param("fecha") LocalDate fecha, 
+        @Param("fecha") LocalDate fecha,
+        @Param("inicioSegundos") long inicioSegundos,
+        @Param("finSegundos") long finSegundos,
         @Param("idExcluir") Long idExcluir);
-} 
\ No newline at end of file
+}
\ No newline at end of file
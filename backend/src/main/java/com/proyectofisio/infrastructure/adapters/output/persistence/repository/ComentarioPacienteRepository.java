@@ -3,9 +3,13 @@ package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.proyectofisio.domain.model.ComentarioPaciente;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.AccessTokenEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ComentarioPacienteEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.SubprogramaEntity;
@@ -25,7 +29,14 @@ public interface ComentarioPacienteRepository extends JpaRepository<ComentarioPa
     
     List<ComentarioPacienteEntity> findBySubprogramaProgramaPersonalizadoIdAndAccessTokenPacienteId(Long programaId, Long pacienteId);
     
-    List<ComentarioPacienteEntity> findByLeidoFalseOrderByFechaCreacionDesc();
+    long countBySubprogramaIdAndLeidoFalse(Long subprogramaId);
     
-    long countByLeidoFalse();
+    // Comentarios sin leer de la empresa, del más reciente al más antiguo; programaId null = todos
+    @Query("SELECT new com.proyectofisio.domain.model.ComentarioPaciente(c.id, s.id, t.token, c.contenido, c.fechaCreacion, c.leido) "
+            + "FROM ComentarioPacienteEntity c JOIN c.subprograma s JOIN c.accessToken t "
+            + "WHERE c.leido = false AND s.programaPersonalizado.empresa.id = :empresaId "
+            + "AND (:programaId IS NULL OR s.programaPersonalizado.id = :programaId) "
+            + "ORDER BY c.fechaCreacion DESC, c.id DESC")
+    List<ComentarioPaciente> findNoLeidosByEmpresaId(@Param("empresaId") Long empresaId,
+            @Param("programaId") Long programaId, Pageable pageable);
 } 
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ContadorComentariosEntity;
+
+@Repository
+public interface ContadorComentariosRepository extends JpaRepository<ContadorComentariosEntity, Long> {
+    
+    @Query("SELECT COALESCE(SUM(c.noLeidos), 0) FROM ContadorComentariosEntity c WHERE c.empresaId = :empresaId")
+    long sumNoLeidosByEmpresaId(@Param("empresaId") Long empresaId);
+    
+    List<ContadorComentariosEntity> findByEmpresaIdAndNoLeidosGreaterThan(Long empresaId, Integer noLeidos);
+    
+    // Un comentario nuevo en el subprograma suma uno al programa al que pertenece
+    @Modifying
+    @Query(value = "INSERT INTO contadores_comentarios_no_leidos (programa_personalizado_id, empresa_id, no_leidos) "
+            + "SELECT p.id, p.empresa_id, 1 FROM subprogramas s "
+            + "JOIN programas_personalizados p ON p.id = s.programa_personalizado_id WHERE s.id = :subprogramaId "
+            + "ON CONFLICT (programa_personalizado_id) DO UPDATE SET no_leidos = contadores_comentarios_no_leidos.no_leidos + 1",
+            nativeQuery = true)
+    int incrementar(@Param("subprogramaId") Long subprogramaId);
+    
+    @Modifying
+    @Query(value = "UPDATE contadores_comentarios_no_leidos SET no_leidos = GREATEST(no_leidos - :cantidad, 0) "
+            + "WHERE programa_personalizado_id = :programaId", nativeQuery = true)
+    int descontar(@Param("programaId") Long programaId, @Param("cantidad") long cantidad);
+    
+    // Marca como leídos los comentarios de la lista que sean de la empresa y aún no lo estuvieran,
+    // y resta de cada programa los que se han marcado, todo en una sentencia. Devuelve cuántos se han marcado
+    @Query(value = "WITH marcados AS ("
+            + "UPDATE comentarios_paciente c SET leido = true FROM subprogramas s "
+            + "JOIN programas_personalizados p ON p.id = s.programa_personalizado_id "
+            + "WHERE c.id IN (:ids) AND c.leido = false AND s.id = c.subprograma_id AND p.empresa_id = :empresaId "
+            + "RETURNING s.programa_personalizado_id AS programa_id), "
+            + "por_programa AS (SELECT programa_id, count(*) AS cantidad FROM marcados GROUP BY programa_id), "
+            + "descontados AS (UPDATE contadores_comentarios_no_leidos cc "
+            + "SET no_leidos = GREATEST(cc.no_leidos - pp.cantidad, 0) FROM por_programa pp "
+            + "WHERE cc.programa_personalizado_id = pp.programa_id RETURNING cc.programa_personalizado_id) "
+            + "SELECT CAST(COALESCE(SUM(cantidad), 0) AS bigint) FROM por_programa",
+            nativeQuery = true)
+    long marcarLeidos(@Param("ids") Collection<Long> ids, @Param("empresaId") Long empresaId);
+    
+    // Recalcula todos los contadores a partir de los comentarios (carga inicial, ver DataInitializer)
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO contadores_comentarios_no_leidos (programa_personalizado_id, empresa_id, no_leidos) "
+            + "SELECT p.id, p.empresa_id, count(c.id) FROM programas_personalizados p "
+            + "LEFT JOIN subprogramas s ON s.programa_personalizado_id = p.id "
+            + "LEFT JOIN comentarios_paciente c ON c.subprograma_id = s.id AND c.leido = false "
+            + "GROUP BY p.id, p.empresa_id "
+            + "ON CONFLICT (programa_personalizado_id) DO UPDATE SET no_leidos = EXCLUDED.no_leidos",
+            nativeQuery = true)
+    int recalcular();
+}
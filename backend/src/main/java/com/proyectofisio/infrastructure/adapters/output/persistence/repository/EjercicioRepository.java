@@ -1,8 +1,13 @@
 package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
 
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EjercicioEntity;
@@ -12,15 +17,33 @@ import com.proyectofisio.infrastructure.adapters.output.persistence.entity.Usuar
 @Repository
 public interface EjercicioRepository extends JpaRepository<EjercicioEntity, Long> {
     
+    // Texto sobre el que se busca; el índice idx_ejercicios_busqueda_trgm usa esta misma expresión (ver EjercicioBuscador)
+    String TEXTO_BUSQUEDA = "lower(coalesce(e.nombre, '') || ' ' || coalesce(e.descripcion, '') || ' ' || coalesce(e.instrucciones, ''))";
+    
     List<EjercicioEntity> findByEmpresa(EmpresaEntity empresa);
     
     List<EjercicioEntity> findByEmpresaId(Long empresaId);
     
+    Page<EjercicioEntity> findByEmpresaId(Long empresaId, Pageable pageable);
+    
     List<EjercicioEntity> findByCreadoPorUsuario(UsuarioEntity usuario);
     
     List<EjercicioEntity> findByCreadoPorUsuarioId(Long usuarioId);
     
     List<EjercicioEntity> findByEmpresaIdOrderByNombreAsc(Long empresaId);
     
-    List<EjercicioEntity> findByNombreContainingIgnoreCaseAndEmpresaId(String nombre, Long empresaId);
-} 
\ No newline at end of file
+    Page<EjercicioEntity> findByEmpresaIdAndNombreContainingIgnoreCase(Long empresaId, String nombre, Pageable pageable);
+    
+    // Búsqueda por trigramas (requiere pg_trgm): word_similarity tolera erratas y el nombre pesa el doble
+    @Query(value = "SELECT e.* FROM ejercicios e WHERE e.empresa_id = :empresaId AND :texto <% " + TEXTO_BUSQUEDA
+            + " ORDER BY 2 * word_similarity(:texto, lower(e.nombre)) + word_similarity(:texto, " + TEXTO_BUSQUEDA + ") DESC, "
+            + "e.nombre, e.id",
+            countQuery = "SELECT count(*) FROM ejercicios e WHERE e.empresa_id = :empresaId AND :texto <% " + TEXTO_BUSQUEDA,
+            nativeQuery = true)
+    Page<EjercicioEntity> buscarPorSimilitud(@Param("empresaId") Long empresaId, @Param("texto") String texto,
+            Pageable pageable);
+    
+    // Empresa propietaria (ver PertenenciaEmpresaResolver)
+    @Query("SELECT e.empresa.id FROM EjercicioEntity e WHERE e.id = ?1")
+    Optional<Long> findEmpresaIdById(Long id);
+}
@@ -0,0 +1,25 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.JwtRevocadoEntity;
+
+@Repository
+public interface JwtRevocadoRepository extends JpaRepository<JwtRevocadoEntity, String> {
+    
+    /**
+     * Revocaciones registradas desde la última sincronización que aún no han expirado
+     */
+    List<JwtRevocadoEntity> findByFechaRevocacionAfterAndFechaExpiracionAfter(LocalDateTime desde, LocalDateTime ahora);
+    
+    @Modifying
+    @Query("DELETE FROM JwtRevocadoEntity j WHERE j.fechaExpiracion < :fecha")
+    int deleteExpirados(@Param("fecha") LocalDateTime fecha);
+}
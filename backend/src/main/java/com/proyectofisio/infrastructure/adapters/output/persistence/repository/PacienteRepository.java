@@ -1,9 +1,11 @@
 package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.PacienteEntity;
@@ -24,4 +26,8 @@ public interface PacienteRepository extends JpaRepository<PacienteEntity, Long>
     boolean existsByEmail(String email);
     
     boolean existsByTelefono(String telefono);
-} 
\ No newline at end of file
+    
+    // De los ids indicados, los que existen y son pacientes de la empresa
+    @Query("SELECT p.id FROM PacienteEntity p WHERE p.id IN ?1 AND p.empresa.id = ?2")
+    List<Long> findIdsByEmpresaId(Collection<Long> ids, Long empresaId);
+}
@@ -1,8 +1,10 @@
 package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -15,4 +17,18 @@ public interface PasoSubprogramaRepository extends JpaRepository<PasoSubprograma
     
     @Query("SELECT MAX(p.numeroPaso) FROM PasoSubprogramaEntity p WHERE p.subprograma.id = ?1")
     Integer findMaxNumeroPasoBySubprogramaId(Long subprogramaId);
-} 
\ No newline at end of file
+    
+    // Inicializa las imágenes de todos los pasos de un programa
+    @Query("SELECT p FROM PasoSubprogramaEntity p LEFT JOIN FETCH p.imagenesUrls "
+            + "WHERE p.subprograma.programaPersonalizado.id = ?1")
+    List<PasoSubprogramaEntity> findArbolImagenesByProgramaId(Long programaPersonalizadoId);
+    
+    // Cierra el hueco que deja un paso eliminado
+    @Modifying
+    @Query("UPDATE PasoSubprogramaEntity p SET p.numeroPaso = p.numeroPaso - 1 WHERE p.subprograma.id = ?1 AND p.numeroPaso > ?2")
+    int desplazarPasosPosteriores(Long subprogramaId, Integer numeroPaso);
+    
+    // Empresa propietaria (ver PertenenciaEmpresaResolver)
+    @Query("SELECT p.subprograma.programaPersonalizado.empresa.id FROM PasoSubprogramaEntity p WHERE p.id = ?1")
+    Optional<Long> findEmpresaIdById(Long id);
+}
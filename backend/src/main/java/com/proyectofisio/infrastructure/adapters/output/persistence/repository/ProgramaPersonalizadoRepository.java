@@ -1,10 +1,16 @@
 package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
 
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.proyectofisio.domain.model.ProgramaPersonalizadoResumen;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EmpresaEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ProgramaPersonalizadoEntity;
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.UsuarioEntity;
@@ -19,4 +25,27 @@ public interface ProgramaPersonalizadoRepository extends JpaRepository<ProgramaP
     List<ProgramaPersonalizadoEntity> findByCreadoPorUsuario(UsuarioEntity usuario);
     
     List<ProgramaPersonalizadoEntity> findByCreadoPorUsuarioId(Long usuarioId);
-} 
\ No newline at end of file
+    
+    // Primer nivel del árbol del programa (ver ProgramaPersonalizadoTreeLoader)
+    @Query("SELECT p FROM ProgramaPersonalizadoEntity p JOIN FETCH p.empresa JOIN FETCH p.creadoPorUsuario "
+            + "LEFT JOIN FETCH p.subprogramas WHERE p.id = ?1")
+    Optional<ProgramaPersonalizadoEntity> findByIdWithSubprogramas(Long id);
+    
+    // Listado con los contadores agregados en una sola consulta; el join multiplica filas
+    // por ejercicio, por eso los subprogramas se cuentan con DISTINCT
+    @Query(value = "SELECT new com.proyectofisio.domain.model.ProgramaPersonalizadoResumen("
+            + "p.id, p.nombre, p.tipoPrograma, p.descripcion, p.empresa.id, p.creadoPorUsuario.id, "
+            + "COUNT(DISTINCT s.id), COUNT(se.ejercicio.id), p.fechaCreacion, p.fechaActualizacion) "
+            + "FROM ProgramaPersonalizadoEntity p LEFT JOIN p.subprogramas s LEFT JOIN s.subprogramaEjercicios se "
+            + "WHERE p.empresa.id = :empresaId AND (:tipoPrograma IS NULL OR p.tipoPrograma = :tipoPrograma) "
+            + "GROUP BY p.id, p.nombre, p.tipoPrograma, p.descripcion, p.empresa.id, p.creadoPorUsuario.id, "
+            + "p.fechaCreacion, p.fechaActualizacion",
+            countQuery = "SELECT COUNT(p) FROM ProgramaPersonalizadoEntity p "
+            + "WHERE p.empresa.id = :empresaId AND (:tipoPrograma IS NULL OR p.tipoPrograma = :tipoPrograma)")
+    Page<ProgramaPersonalizadoResumen> findResumenByEmpresaId(@Param("empresaId") Long empresaId,
+            @Param("tipoPrograma") String tipoPrograma, Pageable pageable);
+    
+    // Empresa propietaria (ver PertenenciaEmpresaResolver)
+    @Query("SELECT p.empresa.id FROM ProgramaPersonalizadoEntity p WHERE p.id = ?1")
+    Optional<Long> findEmpresaIdById(Long id);
+}
@@ -0,0 +1,37 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.proyectofisio.domain.model.ProgramaPublicado;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ProgramaPublicadoEntity;
+
+@Repository
+public interface ProgramaPublicadoRepository extends JpaRepository<ProgramaPublicadoEntity, Long> {
+    
+    @Query("SELECT COALESCE(MAX(p.version), 0) FROM ProgramaPublicadoEntity p WHERE p.programaPersonalizado.id = :programaId")
+    int findMaxVersionByProgramaId(@Param("programaId") Long programaId);
+    
+    // Las versiones de un programa se crean en orden, así que la de mayor id es la última
+    @Query("SELECT MAX(p.id) FROM ProgramaPublicadoEntity p WHERE p.programaPersonalizado.id = :programaId")
+    Long findUltimaVersionIdByProgramaId(@Param("programaId") Long programaId);
+    
+    // Historial sin el contenido, de la versión más reciente a la más antigua
+    @Query("SELECT new com.proyectofisio.domain.model.ProgramaPublicado("
+            + "p.id, p.programaPersonalizado.id, p.version, p.publicadoPorUsuarioId, p.fechaPublicacion) "
+            + "FROM ProgramaPublicadoEntity p WHERE p.programaPersonalizado.id = :programaId ORDER BY p.version DESC")
+    List<ProgramaPublicado> findResumenByProgramaId(@Param("programaId") Long programaId);
+    
+    @Query("SELECT p.contenido FROM ProgramaPublicadoEntity p WHERE p.id = :id")
+    Optional<String> findContenidoById(@Param("id") Long id);
+    
+    @Modifying
+    @Query("DELETE FROM ProgramaPublicadoEntity p WHERE p.programaPersonalizado.id = :programaId")
+    void deleteByProgramaId(@Param("programaId") Long programaId);
+}
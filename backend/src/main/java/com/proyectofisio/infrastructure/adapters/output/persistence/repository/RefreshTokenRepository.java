@@ -0,0 +1,35 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.RefreshTokenEntity;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshTokenEntity, Long> {
+    
+    Optional<RefreshTokenEntity> findByTokenHash(String tokenHash);
+    
+    List<RefreshTokenEntity> findByUsuarioIdAndRevocadoFalse(Long usuarioId);
+    
+    /**
+     * Marca el refresh token como rotado solo si no lo estaba ya
+     * 
+     * @return 1 si esta llamada lo ha revocado, 0 si otra petición se adelantó
+     */
+    @Modifying
+    @Query("UPDATE RefreshTokenEntity r SET r.revocado = true, r.fechaRotacion = :fecha "
+            + "WHERE r.id = :id AND r.revocado = false")
+    int marcarRevocado(@Param("id") Long id, @Param("fecha") LocalDateTime fecha);
+    
+    @Modifying
+    @Query("DELETE FROM RefreshTokenEntity r WHERE r.fechaExpiracion < :fecha")
+    int deleteExpirados(@Param("fecha") LocalDateTime fecha);
+}
@@ -1,11 +1,13 @@
 package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.proyectofisio.infrastructure.adapters.output.persistence.entity.SubprogramaEjercicioEntity;
@@ -26,4 +28,31 @@ public interface SubprogramaEjercicioRepository extends JpaRepository<Subprogram
     
     @Query("SELECT MAX(se.orden) FROM SubprogramaEjercicioEntity se WHERE se.subprograma.id = ?1")
     Integer findMaxOrdenBySubprogramaId(Long subprogramaId);
+    
+    @Query("SELECT se.orden FROM SubprogramaEjercicioEntity se WHERE se.subprograma.id = ?1 AND se.ejercicio.id = ?2")
+    Optional<Integer> findOrdenBySubprogramaIdAndEjercicioId(Long subprogramaId, Long ejercicioId);
+    
+    // De los ejercicios indicados, los que están asignados al subprograma
+    @Query("SELECT se.ejercicio.id FROM SubprogramaEjercicioEntity se WHERE se.subprograma.id = ?1 AND se.ejercicio.id IN ?2")
+    List<Long> findEjercicioIdsAsignados(Long subprogramaId, Collection<Long> ejerciciosIds);
+    
+    @Modifying
+    @Query("DELETE FROM SubprogramaEjercicioEntity se WHERE se.subprograma.id = ?1 AND se.ejercicio.id = ?2")
+    int deleteRelacion(Long subprogramaId, Long ejercicioId);
+    
+    // Cierra el hueco que deja un ejercicio quitado del subprograma
+    @Modifying
+    @Query("UPDATE SubprogramaEjercicioEntity se SET se.orden = se.orden - 1 WHERE se.subprograma.id = ?1 AND se.orden > ?2")
+    int desplazarOrdenesPosteriores(Long subprogramaId, Integer orden);
+    
+    // Renumera 1..n todo el subprograma en una sentencia: primero los ejercicios en el orden
+    // de la lista y después los no incluidos, conservando su orden relativo
+    @Modifying
+    @Query(value = "UPDATE subprograma_ejercicio se SET orden = n.nuevo_orden "
+            + "FROM (SELECT ejercicio_id, ROW_NUMBER() OVER (ORDER BY "
+            + "COALESCE(array_position(ARRAY[:ejerciciosIds], ejercicio_id), 2147483647), orden) AS nuevo_orden "
+            + "FROM subprograma_ejercicio WHERE subprograma_id = :subprogramaId) n "
+            + "WHERE se.subprograma_id = :subprogramaId AND se.ejercicio_id = n.ejercicio_id",
+            nativeQuery = true)
+    int reordenar(@Param("subprogramaId") Long subprogramaId, @Param("ejerciciosIds") List<Long> ejerciciosIds);
 } 
\ No newline at end of file
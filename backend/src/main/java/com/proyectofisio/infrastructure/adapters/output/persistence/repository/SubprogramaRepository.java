@@ -1,8 +1,10 @@
 package com.proyectofisio.infrastructure.adapters.output.persistence.repository;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -21,4 +23,29 @@ public interface SubprogramaRepository extends JpaRepository<SubprogramaEntity,
     
     @Query("SELECT s FROM SubprogramaEntity s LEFT JOIN FETCH s.subprogramaEjercicios WHERE s.programaPersonalizado.id = ?1 ORDER BY s.orden ASC")
     List<SubprogramaEntity> findByProgramaPersonalizadoIdWithEjerciciosOrderByOrdenAsc(Long programaPersonalizadoId);
-} 
\ No newline at end of file
+    
+    // Subprogramas de un programa con sus ejercicios (y el creador/empresa de cada ejercicio) en una sola consulta
+    @Query("SELECT s FROM SubprogramaEntity s LEFT JOIN FETCH s.subprogramaEjercicios se LEFT JOIN FETCH se.ejercicio e "
+            + "LEFT JOIN FETCH e.empresa LEFT JOIN FETCH e.creadoPorUsuario "
+            + "WHERE s.programaPersonalizado.id = ?1 ORDER BY s.orden ASC")
+    List<SubprogramaEntity> findArbolEjerciciosByProgramaId(Long programaPersonalizadoId);
+    
+    // Inicializa la colección de pasos de todos los subprogramas del programa
+    @Query("SELECT s FROM SubprogramaEntity s LEFT JOIN FETCH s.pasos WHERE s.programaPersonalizado.id = ?1")
+    List<SubprogramaEntity> findArbolPasosByProgramaId(Long programaPersonalizadoId);
+    
+    @Query("SELECT s.programaPersonalizado.id FROM SubprogramaEntity s WHERE s.id = ?1")
+    Optional<Long> findProgramaIdById(Long subprogramaId);
+    
+    @Query("SELECT COALESCE(MAX(s.orden), 0) FROM SubprogramaEntity s WHERE s.programaPersonalizado.id = ?1")
+    int findMaxOrdenByProgramaId(Long programaPersonalizadoId);
+    
+    // Cierra el hueco que deja un subprograma eliminado
+    @Modifying
+    @Query("UPDATE SubprogramaEntity s SET s.orden = s.orden - 1 WHERE s.programaPersonalizado.id = ?1 AND s.orden > ?2")
+    int desplazarOrdenesPosteriores(Long programaPersonalizadoId, Integer orden);
+    
+    // Empresa propietaria (ver PertenenciaEmpresaResolver)
+    @Query("SELECT s.programaPersonalizado.empresa.id FROM SubprogramaEntity s WHERE s.id = ?1")
+    Optional<Long> findEmpresaIdById(Long id);
+}
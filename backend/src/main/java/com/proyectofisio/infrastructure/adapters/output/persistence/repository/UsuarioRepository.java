@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.proyectofisio.domain.model.enums.RolUsuario;
@@ -23,4 +24,8 @@ public interface UsuarioRepository extends JpaRepository<UsuarioEntity, Long> {
     boolean existsByEmail(String email);
     
     boolean existsByDni(String dni);
+    
+    // Empresa del profesional, para enviar los cambios de su agenda a su empresa (ver NotificacionesHub)
+    @Query("SELECT u.empresa.id FROM UsuarioEntity u WHERE u.id = ?1")
+    Optional<Long> findEmpresaIdById(Long id);
 } 
\ No newline at end of file
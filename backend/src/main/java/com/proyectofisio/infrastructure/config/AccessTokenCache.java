@@ -0,0 +1,93 @@
+package com.proyectofisio.infrastructure.config;
+
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.proyectofisio.domain.model.AccessToken;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Caché de tokens de acceso de pacientes por UUID, para que el portal público no
+ * consulte la base de datos en cada recarga.
+ *
+ * - Un token vigente se guarda como mucho hasta su fechaExpiracion (y nunca más del TTL).
+ * - Los UUID desconocidos se recuerdan en una caché negativa de vida corta.
+ * - Crear, modificar o eliminar un token debe invalidar su UUID.
+ */
+@Component
+public class AccessTokenCache implements MeterBinder {
+
+    private final CacheAcotada<UUID, AccessToken> tokens;
+    private final CacheAcotada<UUID, Boolean> desconocidos;
+    private final long ttlMs;
+
+    public AccessTokenCache(
+            @Value("${app.cache.access-tokens.max-size:10000}") int maxSize,
+            @Value("${app.cache.access-tokens.ttl-ms:300000}") long ttlMs,
+            @Value("${app.cache.access-tokens.negative-ttl-ms:60000}") long negativeTtlMs) {
+        this.tokens = new CacheAcotada<>(maxSize, ttlMs);
+        this.desconocidos = new CacheAcotada<>(maxSize, negativeTtlMs);
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * @return el token cacheado (copia), vacío si no está en caché
+     */
+    public Optional<AccessToken> get(UUID token) {
+        return Optional.ofNullable(tokens.get(token)).map(accessToken -> accessToken.toBuilder().build());
+    }
+
+    /**
+     * Indica si el UUID se consultó hace poco y no existía
+     */
+    public boolean esDesconocido(UUID token) {
+        return desconocidos.get(token) != null;
+    }
+
+    public void put(AccessToken accessToken) {
+        if (accessToken == null || accessToken.getToken() == null) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        long expiraEn = ahora + ttlMs;
+        if (accessToken.getFechaExpiracion() != null) {
+            long caducidad = accessToken.getFechaExpiracion().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            // Un token ya caducado no va a cambiar: se cachea igual para responder "expirado" sin consultar
+            if (caducidad > ahora) {
+                expiraEn = Math.min(expiraEn, caducidad);
+            }
+        }
+        tokens.put(accessToken.getToken(), accessToken.toBuilder().build(), expiraEn);
+        desconocidos.invalidate(accessToken.getToken());
+    }
+
+    public void putDesconocido(UUID token) {
+        desconocidos.put(token, Boolean.TRUE);
+    }
+
+    public void invalidate(UUID token) {
+        tokens.invalidate(token);
+        desconocidos.invalidate(token);
+    }
+
+    public void clear() {
+        tokens.clear();
+        desconocidos.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        tokens.bindTo(registry, "access.token.cache", "caché de tokens de acceso de pacientes");
+        FunctionCounter.builder("access.token.cache.requests", desconocidos, CacheAcotada::getAciertos)
+                .tag("result", "negative-hit")
+                .description("Consultas a la caché de tokens de acceso de pacientes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,169 @@
+package com.proyectofisio.infrastructure.config;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caché en memoria de tamaño acotado y caducidad por entrada, con contadores de aciertos,
+ * fallos y expulsiones. Es la base de las cachés de la aplicación (usuarios, JWT, tokens de
+ * acceso, snapshots del portal, pertenencia a empresa).
+ *
+ * Al llenarse se descartan primero las entradas caducadas y, si no basta, una fracción
+ * arbitraria de las restantes, para no recorrer el mapa en cada inserción. Con maxSize 0
+ * no se guarda nada.
+ */
+public class CacheAcotada<K, V> {
+
+    private static final long SIN_CADUCIDAD = Long.MAX_VALUE;
+
+    private final Map<K, Entrada<V>> entradas = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMs;
+    private final BiConsumer<K, V> alExpulsar;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+
+    /**
+     * @param ttlMs caducidad de put(clave, valor); 0 o negativo, sin caducidad
+     */
+    public CacheAcotada(int maxSize, long ttlMs) {
+        this(maxSize, ttlMs, (clave, valor) -> { });
+    }
+
+    /**
+     * @param alExpulsar se llama con cada entrada que sale por caducidad o por tamaño, no al invalidarla
+     */
+    public CacheAcotada(int maxSize, long ttlMs, BiConsumer<K, V> alExpulsar) {
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.alExpulsar = alExpulsar;
+    }
+
+    /**
+     * Valor vigente de la clave o null si no está o ha caducado
+     */
+    public V get(K clave) {
+        Entrada<V> entrada = clave != null ? entradas.get(clave) : null;
+        if (entrada == null) {
+            fallos.increment();
+            return null;
+        }
+        if (entrada.expiraEn() <= System.currentTimeMillis()) {
+            expulsar(clave, entrada);
+            fallos.increment();
+            return null;
+        }
+        aciertos.increment();
+        return entrada.valor();
+    }
+
+    /**
+     * Guarda el valor con la caducidad por defecto
+     *
+     * @return el valor vigente que se ha sustituido, o null
+     */
+    public V put(K clave, V valor) {
+        return put(clave, valor, ttlMs > 0 ? System.currentTimeMillis() + ttlMs : SIN_CADUCIDAD);
+    }
+
+    /**
+     * Guarda el valor hasta el instante indicado (epoch en milisegundos)
+     *
+     * @return el valor vigente que se ha sustituido, o null
+     */
+    public V put(K clave, V valor, long expiraEn) {
+        long ahora = System.currentTimeMillis();
+        if (maxSize <= 0 || clave == null || expiraEn <= ahora) {
+            return null;
+        }
+        if (entradas.size() >= maxSize) {
+            liberarEspacio(ahora);
+        }
+        Entrada<V> anterior = entradas.put(clave, new Entrada<>(valor, expiraEn));
+        return anterior != null && anterior.expiraEn() > ahora ? anterior.valor() : null;
+    }
+
+    /**
+     * Elimina la entrada de la clave
+     *
+     * @return el valor que tenía, aunque hubiera caducado, o null
+     */
+    public V invalidate(K clave) {
+        Entrada<V> entrada = clave != null ? entradas.remove(clave) : null;
+        return entrada != null ? entrada.valor() : null;
+    }
+
+    public void clear() {
+        entradas.clear();
+    }
+
+    public int size() {
+        return entradas.size();
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public long getExpulsiones() {
+        return expulsiones.sum();
+    }
+
+    /**
+     * Registra {prefijo}.requests (result=hit|miss), {prefijo}.evictions y {prefijo}.size
+     */
+    public void bindTo(MeterRegistry registry, String prefijo, String descripcion) {
+        FunctionCounter.builder(prefijo + ".requests", aciertos, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Consultas a la " + descripcion)
+                .register(registry);
+        FunctionCounter.builder(prefijo + ".requests", fallos, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Consultas a la " + descripcion)
+                .register(registry);
+        FunctionCounter.builder(prefijo + ".evictions", expulsiones, LongAdder::sum)
+                .description("Entradas expulsadas de la " + descripcion + " por caducidad o por tamaño")
+                .register(registry);
+        Gauge.builder(prefijo + ".size", entradas, Map::size)
+                .description("Entradas actualmente en la " + descripcion)
+                .register(registry);
+    }
+
+    private void liberarEspacio(long ahora) {
+        entradas.forEach((clave, entrada) -> {
+            if (entrada.expiraEn() <= ahora) {
+                expulsar(clave, entrada);
+            }
+        });
+
+        int sobrantes = entradas.size() - (maxSize - Math.max(1, maxSize / 10));
+        Iterator<Map.Entry<K, Entrada<V>>> it = entradas.entrySet().iterator();
+        while (sobrantes-- > 0 && it.hasNext()) {
+            Map.Entry<K, Entrada<V>> e = it.next();
+            expulsar(e.getKey(), e.getValue());
+        }
+    }
+
+    // Solo cuenta y avisa si la entrada seguía en el mapa: otro hilo puede haberla sustituido
+    private void expulsar(K clave, Entrada<V> entrada) {
+        if (entradas.remove(clave, entrada)) {
+            expulsiones.increment();
+            alExpulsar.accept(clave, entrada.valor());
+        }
+    }
+
+    private record Entrada<V>(V valor, long expiraEn) {
+    }
+}
@@ -1,10 +1,12 @@
 package com.proyectofisio.infrastructure.config;
 
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.ContadorComentariosRepository;
+
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -13,18 +15,22 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Component
 @Slf4j
+@RequiredArgsConstructor
 @Order(2) // Se ejecuta después del AdminInitializer
 public class DataInitializer implements CommandLineRunner {
 
-    @Autowired
-    public DataInitializer() {
-        // Constructor vacío
-    }
+    private final ContadorComentariosRepository contadorComentariosRepository;
 
     @Override
     public void run(String... args) throws Exception {
         log.info("Inicializando datos adicionales...");
         
+        // Contadores de comentarios sin leer: se calculan una vez a partir de los comentarios existentes
+        if (contadorComentariosRepository.count() == 0) {
+            int programas = contadorComentariosRepository.recalcular();
+            log.info("Contadores de comentarios sin leer calculados para {} programas", programas);
+        }
+        
         // Aquí puedes añadir más inicializaciones si son necesarias en el futuro
         
         log.info("Inicialización de datos completada");
@@ -0,0 +1,267 @@
+package com.proyectofisio.infrastructure.config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.proyectofisio.domain.model.EventoAgenda;
+import com.proyectofisio.domain.model.EventoComentario;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.UsuarioRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Conexiones Server-Sent Events del personal de cada empresa.
+ *
+ * Los cambios de agenda y los comentarios nuevos llegan como eventos después del commit y se
+ * acumulan por empresa; una tarea periódica los envía agrupados, de modo que varias modificaciones
+ * de la misma cita en un intervalo salen como un único cambio con el estado final. Solo se acumula
+ * para empresas con alguien conectado. Las conexiones sin tráfico reciben un comentario SSE vacío
+ * para que los proxies no las corten.
+ *
+ * Con varias instancias detrás del balanceador, cada evento se publica también en NotificacionesRelay
+ * para que lo reciban las conexiones abiertas contra las demás.
+ */
+@Component
+@Slf4j
+public class NotificacionesHub implements MeterBinder {
+
+    private final UsuarioRepository usuarioRepository;
+    private final NotificacionesRelay relay;
+
+    private final Map<Long, Set<Conexion>> conexiones = new ConcurrentHashMap<>();
+    private final Map<Long, Pendientes> pendientes = new ConcurrentHashMap<>();
+    private final AtomicInteger totalConexiones = new AtomicInteger();
+    private final LongAdder enviados = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+
+    @Value("${app.sse.max-conexiones:2000}")
+    private int maxConexiones;
+
+    @Value("${app.sse.max-conexiones-por-usuario:3}")
+    private int maxConexionesPorUsuario;
+
+    @Value("${app.sse.timeout-ms:900000}")
+    private long timeoutMs;
+
+    @Value("${app.sse.heartbeat-interval-ms:25000}")
+    private long heartbeatMs;
+
+    @Value("${app.sse.max-cambios-por-envio:200}")
+    private int maxCambiosPorEnvio;
+
+    public NotificacionesHub(UsuarioRepository usuarioRepository, NotificacionesRelay relay) {
+        this.usuarioRepository = usuarioRepository;
+        this.relay = relay;
+        relay.alRecibir(this::recibirRelevo);
+    }
+
+    /**
+     * Abre una conexión para el usuario
+     *
+     * @param profesionalId si no es null, solo se envían los cambios de la agenda de ese profesional
+     * @throws IllegalStateException si se ha alcanzado el máximo de conexiones
+     */
+    public SseEmitter suscribir(Long empresaId, Long usuarioId, Long profesionalId) {
+        if (totalConexiones.incrementAndGet() > maxConexiones) {
+            totalConexiones.decrementAndGet();
+            rechazadas.increment();
+            throw new IllegalStateException("Se ha alcanzado el máximo de conexiones de notificaciones");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Conexion conexion = new Conexion(empresaId, usuarioId, profesionalId, emitter);
+        Set<Conexion> deEmpresa = conexiones.computeIfAbsent(empresaId, k -> ConcurrentHashMap.newKeySet());
+
+        // Cada pestaña abre su conexión: por encima del máximo se cierra la más antigua del usuario
+        List<Conexion> delUsuario = deEmpresa.stream()
+                .filter(c -> Objects.equals(c.usuarioId, usuarioId))
+                .sorted((a, b) -> Long.compare(a.creada, b.creada))
+                .toList();
+        for (int i = 0; i <= delUsuario.size() - maxConexionesPorUsuario; i++) {
+            delUsuario.get(i).emitter.complete();
+            cerrar(delUsuario.get(i));
+        }
+
+        deEmpresa.add(conexion);
+        emitter.onCompletion(() -> cerrar(conexion));
+        emitter.onTimeout(() -> cerrar(conexion));
+        emitter.onError(e -> cerrar(conexion));
+
+        // Primer envío: confirma la conexión y fija el tiempo de reconexión del cliente
+        enviar(conexion, SseEmitter.event().reconnectTime(5000).comment("conectado"));
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onEventoAgenda(EventoAgenda evento) {
+        // Sin conexiones locales ni otras instancias no hace falta buscar la empresa
+        if (evento.usuarioId() == null || (totalConexiones.get() == 0 && !relay.isHabilitado())) {
+            return;
+        }
+        usuarioRepository.findEmpresaIdById(evento.usuarioId()).ifPresent(empresaId -> {
+            acumular(empresaId, p -> p.agenda.put(evento.citaId(), evento));
+            relay.publicar(empresaId, evento, null);
+        });
+    }
+
+    @TransactionalEventListener
+    public void onEventoComentario(EventoComentario evento) {
+        if (evento.empresaId() == null) {
+            return;
+        }
+        // Los comentarios del mismo subprograma se avisan una sola vez por envío
+        acumular(evento.empresaId(), p -> p.comentarios.put(evento.subprogramaId(), evento));
+        relay.publicar(evento.empresaId(), null, evento);
+    }
+
+    @Scheduled(fixedDelayString = "${app.sse.flush-interval-ms:1000}")
+    public void enviarPendientes() {
+        for (Long empresaId : pendientes.keySet()) {
+            Pendientes cambios = pendientes.remove(empresaId);
+            Set<Conexion> deEmpresa = conexiones.get(empresaId);
+            if (cambios == null || deEmpresa == null || deEmpresa.isEmpty()) {
+                continue;
+            }
+            for (Conexion conexion : deEmpresa) {
+                if (cambios.desbordado) {
+                    // Demasiados cambios para enviarlos uno a uno: el cliente recarga lo que tenga abierto
+                    enviar(conexion, SseEmitter.event().name("recargar").data("todo"));
+                    continue;
+                }
+                List<EventoAgenda> agenda = cambios.agenda.values().stream()
+                        .filter(e -> conexion.profesionalId == null || conexion.profesionalId.equals(e.usuarioId()))
+                        .toList();
+                if (!agenda.isEmpty()) {
+                    enviar(conexion, SseEmitter.event().name("agenda").data(agenda));
+                }
+                if (!cambios.comentarios.isEmpty()) {
+                    enviar(conexion, SseEmitter.event().name("comentarios")
+                            .data(new ArrayList<>(cambios.comentarios.values())));
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.sse.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        long limite = System.currentTimeMillis() - heartbeatMs;
+        for (Set<Conexion> deEmpresa : conexiones.values()) {
+            for (Conexion conexion : deEmpresa) {
+                if (conexion.ultimoEnvio <= limite) {
+                    enviar(conexion, SseEmitter.event().comment(""));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("notificaciones.sse.connections", totalConexiones, AtomicInteger::get)
+                .description("Conexiones SSE abiertas")
+                .register(registry);
+        FunctionCounter.builder("notificaciones.sse.rejected", rechazadas, LongAdder::sum)
+                .description("Conexiones SSE rechazadas por superar el máximo")
+                .register(registry);
+        FunctionCounter.builder("notificaciones.sse.sent", enviados, LongAdder::sum)
+                .description("Mensajes SSE enviados, incluidos los heartbeats")
+                .register(registry);
+    }
+
+    // Eventos de otras instancias: se acumulan igual que los propios
+    private void recibirRelevo(NotificacionesRelay.Relevo relevo) {
+        if (relevo.empresaId() == null) {
+            return;
+        }
+        if (relevo.agenda() != null) {
+            acumular(relevo.empresaId(), p -> p.agenda.put(relevo.agenda().citaId(), relevo.agenda()));
+        }
+        if (relevo.comentario() != null) {
+            acumular(relevo.empresaId(), p -> p.comentarios.put(relevo.comentario().subprogramaId(), relevo.comentario()));
+        }
+    }
+
+    // compute bloquea la entrada de la empresa, así no se pierde un cambio mientras se envían los anteriores
+    private void acumular(Long empresaId, Consumer<Pendientes> cambio) {
+        Set<Conexion> deEmpresa = conexiones.get(empresaId);
+        if (deEmpresa == null || deEmpresa.isEmpty()) {
+            return;
+        }
+        pendientes.compute(empresaId, (k, p) -> {
+            Pendientes actual = p != null ? p : new Pendientes();
+            if (!actual.desbordado) {
+                cambio.accept(actual);
+                if (actual.agenda.size() + actual.comentarios.size() > maxCambiosPorEnvio) {
+                    actual.desbordado = true;
+                    actual.agenda.clear();
+                    actual.comentarios.clear();
+                }
+            }
+            return actual;
+        });
+    }
+
+    private void enviar(Conexion conexion, SseEmitter.SseEventBuilder evento) {
+        try {
+            conexion.emitter.send(evento);
+            conexion.ultimoEnvio = System.currentTimeMillis();
+            enviados.increment();
+        } catch (IOException e) {
+            // Cliente desconectado: se libera sin esperar al timeout
+            log.debug("Conexión SSE cerrada para el usuario {}: {}", conexion.usuarioId, e.getMessage());
+            conexion.emitter.completeWithError(e);
+            cerrar(conexion);
+        } catch (IllegalStateException e) {
+            // El emisor ya había terminado
+            cerrar(conexion);
+        }
+    }
+
+    private void cerrar(Conexion conexion) {
+        Set<Conexion> deEmpresa = conexiones.get(conexion.empresaId);
+        if (deEmpresa != null && deEmpresa.remove(conexion)) {
+            totalConexiones.decrementAndGet();
+        }
+    }
+
+    private static final class Conexion {
+        private final Long empresaId;
+        private final Long usuarioId;
+        private final Long profesionalId;
+        private final SseEmitter emitter;
+        private final long creada = System.currentTimeMillis();
+        private volatile long ultimoEnvio = creada;
+
+        private Conexion(Long empresaId, Long usuarioId, Long profesionalId, SseEmitter emitter) {
+            this.empresaId = empresaId;
+            this.usuarioId = usuarioId;
+            this.profesionalId = profesionalId;
+            this.emitter = emitter;
+        }
+    }
+
+    // Último estado de cada cita y último comentario de cada subprograma desde el envío anterior
+    private static final class Pendientes {
+        private final Map<Long, EventoAgenda> agenda = new LinkedHashMap<>();
+        private final Map<Long, EventoComentario> comentarios = new LinkedHashMap<>();
+        private boolean desbordado;
+    }
+}
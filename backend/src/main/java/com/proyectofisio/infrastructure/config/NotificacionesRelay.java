@@ -0,0 +1,213 @@
+package com.proyectofisio.infrastructure.config;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyectofisio.domain.model.EventoAgenda;
+import com.proyectofisio.domain.model.EventoComentario;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reparte los eventos de notificaciones entre las instancias del backend con LISTEN/NOTIFY de PostgreSQL.
+ *
+ * Cada instancia entrega sus propios eventos directamente y además los publica en el canal; el resto
+ * los recibe por una conexión dedicada, fuera del pool, y los acumula como si fueran locales. Los
+ * mensajes propios se descartan por el identificador de instancia. Si la conexión de escucha se cae
+ * se reabre, y lo publicado mientras tanto no llega a esa instancia: sus clientes lo verán al recargar.
+ * Está desactivado por defecto; con una sola instancia no aporta nada.
+ *
+ * El driver de PostgreSQL solo está en el classpath de ejecución, por eso PGConnection.getNotifications
+ * se invoca por reflexión.
+ */
+@Component
+@Slf4j
+public class NotificacionesRelay implements SmartLifecycle, MeterBinder {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final DataSourceProperties dataSourceProperties;
+    private final String instancia = UUID.randomUUID().toString();
+
+    private final boolean habilitado;
+    private final String canal;
+
+    private final LongAdder publicados = new LongAdder();
+    private final LongAdder recibidos = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+
+    @Value("${app.sse.relay.poll-ms:500}")
+    private int esperaMs;
+
+    @Value("${app.sse.relay.retry-ms:5000}")
+    private long reintentoMs;
+
+    private volatile Consumer<Relevo> receptor = relevo -> { };
+    private volatile boolean activo;
+
+    /**
+     * Evento tal como viaja por el canal: solo uno de agenda o comentario viene informado
+     */
+    public record Relevo(String instancia, Long empresaId, EventoAgenda agenda, EventoComentario comentario) {
+    }
+
+    public NotificacionesRelay(
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            DataSourceProperties dataSourceProperties,
+            @Value("${app.sse.relay.enabled:false}") boolean habilitado,
+            @Value("${app.sse.relay.canal:notificaciones_sse}") String canal) {
+        // El canal va sin comillas en LISTEN, así que solo se admite un identificador simple
+        if (!canal.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Nombre de canal de notificaciones no válido: " + canal);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.dataSourceProperties = dataSourceProperties;
+        this.habilitado = habilitado;
+        this.canal = canal;
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Registra quién recibe los eventos publicados por otras instancias
+     */
+    public void alRecibir(Consumer<Relevo> receptor) {
+        this.receptor = receptor;
+    }
+
+    /**
+     * Publica el evento para el resto de instancias; un fallo solo se registra, la entrega local ya se ha hecho
+     */
+    public void publicar(Long empresaId, EventoAgenda agenda, EventoComentario comentario) {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            String mensaje = objectMapper.writeValueAsString(new Relevo(instancia, empresaId, agenda, comentario));
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> { }, canal, mensaje);
+            publicados.increment();
+        } catch (JsonProcessingException | DataAccessException e) {
+            errores.increment();
+            log.warn("No se pudo publicar el evento de notificaciones: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!habilitado) {
+            return;
+        }
+        activo = true;
+        Thread hilo = new Thread(this::escuchar, "notificaciones-relay");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    @Override
+    public void stop() {
+        // El hilo sale en la siguiente espera de getNotifications
+        activo = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return activo;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("notificaciones.relay.published", publicados, LongAdder::sum)
+                .description("Eventos de notificaciones publicados para otras instancias")
+                .register(registry);
+        FunctionCounter.builder("notificaciones.relay.received", recibidos, LongAdder::sum)
+                .description("Eventos de notificaciones recibidos de otras instancias")
+                .register(registry);
+        FunctionCounter.builder("notificaciones.relay.errors", errores, LongAdder::sum)
+                .description("Fallos al publicar o escuchar eventos de notificaciones")
+                .register(registry);
+    }
+
+    private void escuchar() {
+        while (activo) {
+            try (Connection conexion = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = conexion.createStatement()) {
+                    statement.execute("LISTEN " + canal);
+                }
+                Class<?> tipoPg = Class.forName("org.postgresql.PGConnection");
+                Object pgConexion = conexion.unwrap(tipoPg);
+                Method getNotifications = tipoPg.getMethod("getNotifications", int.class);
+                Method getParameter = Class.forName("org.postgresql.PGNotification").getMethod("getParameter");
+                log.info("Escuchando eventos de notificaciones en el canal {}", canal);
+                while (activo) {
+                    Object avisos = getNotifications.invoke(pgConexion, esperaMs);
+                    if (avisos == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < Array.getLength(avisos); i++) {
+                        recibir((String) getParameter.invoke(Array.get(avisos, i)));
+                    }
+                }
+            } catch (SQLException | InvocationTargetException e) {
+                // getNotifications falla con la conexión caída: se reabre
+                errores.increment();
+                Throwable causa = e instanceof InvocationTargetException ite ? ite.getCause() : e;
+                log.warn("Conexión de escucha de notificaciones perdida, se reintenta en {} ms: {}",
+                        reintentoMs, causa.getMessage());
+                dormir();
+            } catch (ReflectiveOperationException e) {
+                // Sin driver de PostgreSQL no hay reparto entre instancias
+                errores.increment();
+                log.error("No se puede escuchar el canal de notificaciones: {}", e.toString());
+                activo = false;
+            }
+        }
+    }
+
+    private void recibir(String mensaje) {
+        try {
+            Relevo relevo = objectMapper.readValue(mensaje, Relevo.class);
+            if (!instancia.equals(relevo.instancia())) {
+                recibidos.increment();
+                receptor.accept(relevo);
+            }
+        } catch (Exception e) {
+            // Un mensaje que no se entiende no debe parar la escucha
+            errores.increment();
+            log.warn("Evento de notificaciones descartado: {}", e.getMessage());
+        }
+    }
+
+    private void dormir() {
+        try {
+            Thread.sleep(reintentoMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            activo = false;
+        }
+    }
+}
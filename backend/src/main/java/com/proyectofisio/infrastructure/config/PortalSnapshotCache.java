@@ -0,0 +1,214 @@
+package com.proyectofisio.infrastructure.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Snapshot serializado del programa que ve el paciente en el portal, uno por programa.
+ * Se guarda ya codificado en JSON junto con su hash, que sirve de ETag; cualquier cambio
+ * en el programa, sus subprogramas, ejercicios asignados o pasos lo descarta.
+ *
+ * Las versiones publicadas se guardan aparte por id de versión: no cambian nunca, así que
+ * no caducan ni se invalidan y solo salen de memoria por tamaño.
+ *
+ * Cada snapshot guarda también qué ejercicios tiene cada subprograma, para comprobar los
+ * registros del portal contra lo que el paciente está viendo y no contra el borrador.
+ */
+@Component
+public class PortalSnapshotCache implements MeterBinder {
+
+    private final ObjectMapper objectMapper;
+    private final CacheAcotada<Long, Snapshot> snapshots;
+    private final CacheAcotada<Long, Snapshot> publicados;
+    // Se incrementa en cada invalidación; un snapshot construido mientras cambiaba no se guarda
+    private final AtomicLong generacion = new AtomicLong();
+    private final LongAdder invalidaciones = new LongAdder();
+
+    public PortalSnapshotCache(ObjectMapper objectMapper,
+            @Value("${app.cache.portal-snapshots.max-size:1000}") int maxSize,
+            @Value("${app.cache.portal-snapshots.ttl-ms:600000}") long ttlMs) {
+        this.objectMapper = objectMapper;
+        this.snapshots = new CacheAcotada<>(maxSize, ttlMs);
+        this.publicados = new CacheAcotada<>(maxSize, 0);
+    }
+
+    /**
+     * Devuelve el snapshot del programa, construyéndolo con el proveedor si no está o ha caducado
+     */
+    public Snapshot obtener(Long programaId, Supplier<Object> programa) {
+        Snapshot snapshot = snapshots.get(programaId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        long generacionInicial = generacion.get();
+        snapshot = serializar(programa.get());
+        if (generacion.get() == generacionInicial) {
+            snapshots.put(programaId, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Devuelve el snapshot de una versión publicada, leyendo su contenido con el proveedor la primera vez
+     */
+    public Snapshot obtenerPublicado(Long versionId, Supplier<String> contenido) {
+        Snapshot snapshot = publicados.get(versionId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        byte[] json = contenido.get().getBytes(StandardCharsets.UTF_8);
+        snapshot = new Snapshot(json, hash(json), ejerciciosPorSubprograma(json));
+        publicados.put(versionId, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Descarta el snapshot del programa ahora y, si hay transacción en curso, otra vez al confirmarla
+     * para que una lectura concurrente no vuelva a guardar los datos anteriores
+     */
+    public void invalidate(Long programaId) {
+        descartar(programaId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    descartar(programaId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Descarta todos los snapshots (p. ej. al editar un ejercicio compartido por varios programas)
+     */
+    public void invalidateAll() {
+        descartarTodos();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    descartarTodos();
+                }
+            });
+        }
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        snapshots.bindTo(registry, "portal.snapshot.cache", "caché de snapshots del portal de pacientes");
+        publicados.bindTo(registry, "portal.snapshot.cache.published", "caché de versiones publicadas del portal");
+        FunctionCounter.builder("portal.snapshot.cache.invalidations", invalidaciones, LongAdder::sum)
+                .description("Snapshots descartados por cambios en el programa")
+                .register(registry);
+    }
+
+    private void descartar(Long programaId) {
+        generacion.incrementAndGet();
+        if (snapshots.invalidate(programaId) != null) {
+            invalidaciones.increment();
+        }
+    }
+
+    private void descartarTodos() {
+        generacion.incrementAndGet();
+        invalidaciones.add(snapshots.size());
+        snapshots.clear();
+    }
+
+    private Snapshot serializar(Object programa) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(programa);
+            return new Snapshot(json, hash(json), ejerciciosPorSubprograma(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el programa del portal", e);
+        }
+    }
+
+    private Map<Long, Set<Long>> ejerciciosPorSubprograma(byte[] json) {
+        Map<Long, Set<Long>> ejercicios = new HashMap<>();
+        try {
+            for (JsonNode subprograma : objectMapper.readTree(json).path("subprogramas")) {
+                Set<Long> ids = ejercicios.computeIfAbsent(subprograma.path("id").asLong(), k -> new HashSet<>());
+                for (JsonNode ejercicio : subprograma.path("ejercicios")) {
+                    ids.add(ejercicio.path("id").asLong());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo leer el programa del portal", e);
+        }
+        return ejercicios;
+    }
+
+    // 128 bits del SHA-256 del contenido: identifica la versión sin exponer nada del programa
+    private static String hash(byte[] contenido) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(contenido);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    public record Snapshot(byte[] programaJson, String hash, Map<Long, Set<Long>> ejercicios) {
+
+        /**
+         * Indica si el ejercicio forma parte del subprograma en este snapshot
+         */
+        public boolean incluyeEjercicio(Long subprogramaId, Long ejercicioId) {
+            Set<Long> ids = ejercicios.get(subprogramaId);
+            return ids != null && ids.contains(ejercicioId);
+        }
+
+        /**
+         * ETag fuerte de la respuesta: versión del programa más el token que la solicita
+         */
+        public String etag(UUID token) {
+            return "\"" + hash + "-" + token + "\"";
+        }
+
+        /**
+         * Cuerpo completo de la respuesta: el programa ya codificado más los datos del token
+         */
+        public byte[] respuesta(UUID token, Long pacienteId) {
+            byte[] inicio = "{\"programa\":".getBytes(StandardCharsets.UTF_8);
+            byte[] fin = (",\"token\":\"" + token + "\",\"pacienteId\":" + pacienteId + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+            byte[] cuerpo = new byte[inicio.length + programaJson.length + fin.length];
+            System.arraycopy(inicio, 0, cuerpo, 0, inicio.length);
+            System.arraycopy(programaJson, 0, cuerpo, inicio.length, programaJson.length);
+            System.arraycopy(fin, 0, cuerpo, inicio.length + programaJson.length, fin.length);
+            return cuerpo;
+        }
+    }
+}
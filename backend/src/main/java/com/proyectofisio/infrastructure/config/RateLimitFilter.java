@@ -0,0 +1,264 @@
+package com.proyectofisio.infrastructure.config;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.web.cors.CorsProcessor;
+import org.springframework.web.cors.DefaultCorsProcessor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limita el ritmo de peticiones a los endpoints accesibles sin login de personal
+ * (autenticación y portal de pacientes), por IP del cliente y, cuando la petición
+ * lleva un token de paciente, también por token. Se ejecuta antes de Spring Security
+ * para que las peticiones rechazadas no lleguen a tocar el pool de conexiones.
+ *
+ * El token se toma del parámetro "token" en los GET y del campo "token" del cuerpo JSON
+ * en los POST (comentario, registro y validar-token). El cuerpo se lee aquí y se entrega
+ * al controlador desde memoria; si supera app.rate-limit.max-body-bytes o no declara su
+ * longitud, la petición solo se limita por IP.
+ *
+ * La IP es la que resuelve Tomcat a partir de X-Forwarded-For (server.forward-headers-strategy).
+ * Como el 429 se escribe antes del filtro CORS de Spring Security, se le añaden aquí las
+ * cabeceras CORS para que el navegador deje leer la respuesta y su Retry-After.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private final ObjectMapper objectMapper;
+    private final CorsConfigurationSource corsConfigurationSource;
+    private final CorsProcessor corsProcessor = new DefaultCorsProcessor();
+    private final List<Ruta> rutas;
+    private final int maxCuerpo;
+
+    public RateLimitFilter(
+            ObjectMapper objectMapper,
+            CorsConfigurationSource corsConfigurationSource,
+            @Value("${app.rate-limit.enabled:true}") boolean habilitado,
+            @Value("${app.rate-limit.stripes:65536}") int franjas,
+            @Value("${app.rate-limit.auth.capacity:20}") int authCapacidad,
+            @Value("${app.rate-limit.auth.per-second:1}") double authPorSegundo,
+            @Value("${app.rate-limit.acceso-programa.capacity:30}") int accesoCapacidad,
+            @Value("${app.rate-limit.acceso-programa.per-second:2}") double accesoPorSegundo,
+            @Value("${app.rate-limit.validar-token.capacity:10}") int validarCapacidad,
+            @Value("${app.rate-limit.validar-token.per-second:1}") double validarPorSegundo,
+            @Value("${app.rate-limit.max-body-bytes:16384}") int maxCuerpo) {
+        this.objectMapper = objectMapper;
+        this.corsConfigurationSource = corsConfigurationSource;
+        this.maxCuerpo = maxCuerpo;
+        this.rutas = !habilitado ? List.of() : List.of(
+                new Ruta("auth", "/api/auth/",
+                        new TokenBucketRateLimiter(authCapacidad, authPorSegundo, franjas),
+                        null),
+                new Ruta("acceso-programa", "/api/acceso-programa",
+                        new TokenBucketRateLimiter(accesoCapacidad, accesoPorSegundo, franjas),
+                        new TokenBucketRateLimiter(accesoCapacidad, accesoPorSegundo, franjas)),
+                new Ruta("validar-token", "/api/programas-personalizados/validar-token",
+                        new TokenBucketRateLimiter(validarCapacidad, validarPorSegundo, franjas),
+                        new TokenBucketRateLimiter(validarCapacidad, validarPorSegundo, franjas)));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return rutas.isEmpty() || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Ruta ruta = buscarRuta(request.getRequestURI());
+        if (ruta == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long espera = ruta.porIp().tryAcquire(request.getRemoteAddr());
+        if (espera == 0 && ruta.porToken() != null) {
+            String token;
+            if ("POST".equals(request.getMethod())) {
+                CuerpoLeido cuerpo = leerCuerpo(request);
+                if (cuerpo != null) {
+                    request = cuerpo;
+                }
+                token = cuerpo != null ? tokenDelCuerpo(cuerpo.cuerpo) : null;
+            } else {
+                token = request.getParameter("token");
+            }
+            if (token != null && !token.isEmpty()) {
+                espera = ruta.porToken().tryAcquire(token);
+            }
+        }
+
+        if (espera > 0) {
+            ruta.rechazadas().increment();
+            rechazar(request, response, espera);
+            return;
+        }
+        ruta.admitidas().increment();
+        filterChain.doFilter(request, response);
+    }
+
+    private Ruta buscarRuta(String uri) {
+        for (Ruta ruta : rutas) {
+            if (uri.startsWith(ruta.prefijo())) {
+                return ruta;
+            }
+        }
+        return null;
+    }
+
+    // Solo cuerpos JSON con longitud declarada y acotada; el resto sigue sin leer
+    private CuerpoLeido leerCuerpo(HttpServletRequest request) throws IOException {
+        long longitud = request.getContentLengthLong();
+        String tipo = request.getContentType();
+        if (longitud <= 0 || longitud > maxCuerpo || tipo == null || !tipo.startsWith(MediaType.APPLICATION_JSON_VALUE)) {
+            return null;
+        }
+        return new CuerpoLeido(request, request.getInputStream().readNBytes((int) longitud));
+    }
+
+    private String tokenDelCuerpo(byte[] cuerpo) {
+        try {
+            JsonNode token = objectMapper.readTree(cuerpo).get("token");
+            return token != null ? token.textValue() : null;
+        } catch (IOException e) {
+            // JSON inválido: el controlador responderá 400
+            return null;
+        }
+    }
+
+    private void rechazar(HttpServletRequest request, HttpServletResponse response, long esperaNanos) throws IOException {
+        CorsConfiguration cors = corsConfigurationSource.getCorsConfiguration(request);
+        if (cors != null && !corsProcessor.processRequest(cors, request, response)) {
+            // Origen no permitido: DefaultCorsProcessor ya ha respondido 403
+            return;
+        }
+        long segundos = Math.max(1, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(segundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"message\":\"Demasiadas solicitudes, inténtelo de nuevo en unos segundos\"}");
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Ruta ruta : rutas) {
+            FunctionCounter.builder("rate.limit.requests", ruta.admitidas(), LongAdder::sum)
+                    .tag("route", ruta.nombre())
+                    .tag("result", "allowed")
+                    .description("Peticiones a endpoints públicos según el limitador")
+                    .register(registry);
+            FunctionCounter.builder("rate.limit.requests", ruta.rechazadas(), LongAdder::sum)
+                    .tag("route", ruta.nombre())
+                    .tag("result", "rejected")
+                    .description("Peticiones a endpoints públicos según el limitador")
+                    .register(registry);
+        }
+    }
+
+    // Petición cuyo cuerpo ya se ha leído para buscar el token
+    private static final class CuerpoLeido extends HttpServletRequestWrapper {
+        private final byte[] cuerpo;
+
+        private CuerpoLeido(HttpServletRequest request, byte[] cuerpo) {
+            super(request);
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(cuerpo);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // Todo el cuerpo está ya en memoria: se notifica de una vez
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException | RuntimeException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String charset = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return cuerpo.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return cuerpo.length;
+        }
+    }
+
+    private record Ruta(String nombre, String prefijo, TokenBucketRateLimiter porIp,
+            TokenBucketRateLimiter porToken, LongAdder admitidas, LongAdder rechazadas) {
+
+        Ruta(String nombre, String prefijo, TokenBucketRateLimiter porIp, TokenBucketRateLimiter porToken) {
+            this(nombre, prefijo, porIp, porToken, new LongAdder(), new LongAdder());
+        }
+    }
+}
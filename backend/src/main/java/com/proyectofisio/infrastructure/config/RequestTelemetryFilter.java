@@ -0,0 +1,89 @@
+package com.proyectofisio.infrastructure.config;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Filtro de telemetría de peticiones que sustituye al antiguo DebugFilter.
+ *
+ * - Asigna un id de traza a cada petición (cabecera X-Request-Id), lo deja en el MDC
+ *   y lo devuelve en la respuesta.
+ * - La latencia por ruta y los contadores por código de estado los registra Actuator
+ *   en la métrica http.server.requests (con histograma activado en application.properties).
+ * - Solo una fracción configurable de peticiones vuelca el detalle completo al log;
+ *   con el muestreo a 0 el coste es generar el id y dos operaciones sobre el MDC.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class RequestTelemetryFilter extends OncePerRequestFilter {
+
+    public static final String TRACE_ID_HEADER = "X-Request-Id";
+    public static final String TRACE_ID_MDC_KEY = "traceId";
+
+    @Value("${app.telemetry.sample-rate:0.0}")
+    private double sampleRate;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String traceId = resolveTraceId(request);
+        MDC.put(TRACE_ID_MDC_KEY, traceId);
+        response.setHeader(TRACE_ID_HEADER, traceId);
+
+        boolean sampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        long inicio = sampled ? System.nanoTime() : 0L;
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (sampled) {
+                logDetalle(request, response, System.nanoTime() - inicio);
+            }
+            MDC.remove(TRACE_ID_MDC_KEY);
+        }
+    }
+
+    private String resolveTraceId(HttpServletRequest request) {
+        String traceId = request.getHeader(TRACE_ID_HEADER);
+        if (traceId != null && !traceId.isEmpty() && traceId.length() <= 64
+                && traceId.chars().allMatch(c -> Character.isLetterOrDigit(c) || c == '-' || c == '_')) {
+            return traceId;
+        }
+        // Id de 64 bits en hexadecimal: suficiente para correlacionar y más barato que UUID.randomUUID()
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    private void logDetalle(HttpServletRequest request, HttpServletResponse response, long duracionNanos) {
+        Object ruta = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+        StringBuilder cabeceras = new StringBuilder();
+        request.getHeaderNames().asIterator().forEachRemaining(nombre -> {
+            String valor = "authorization".equalsIgnoreCase(nombre) ? "[oculto]" : request.getHeader(nombre);
+            cabeceras.append(nombre).append('=').append(valor).append("; ");
+        });
+
+        log.info("{} {} (ruta: {}) -> {} en {} ms | cabeceras: {}",
+                request.getMethod(),
+                request.getRequestURI(),
+                ruta != null ? ruta : "-",
+                response.getStatus(),
+                duracionNanos / 1_000_000,
+                cabeceras);
+    }
+}
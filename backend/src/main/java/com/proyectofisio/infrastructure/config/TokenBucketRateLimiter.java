@@ -0,0 +1,69 @@
+package com.proyectofisio.infrastructure.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token bucket sin bloqueos sobre una tabla fija de franjas (stripes).
+ *
+ * Cada clave se asigna por hash a una franja y cada franja guarda en un único long el
+ * "instante teórico de llegada" (algoritmo GCRA, equivalente a un token bucket): admitir
+ * una petición es un compareAndSet sobre ese long. La tabla no crece con el número de
+ * clientes, así que no hace falta expulsar entradas; dos claves que caen en la misma
+ * franja comparten cupo, algo poco probable con suficientes franjas.
+ */
+public class TokenBucketRateLimiter {
+
+    private final AtomicLongArray franjas;
+    private final int mascara;
+    // Nanosegundos que "cuesta" cada petición y ráfaga máxima tolerada
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+
+    /**
+     * @param capacidad peticiones que se admiten de golpe con el cubo lleno
+     * @param porSegundo ritmo sostenido de recarga
+     * @param franjas número de franjas (se redondea a potencia de 2)
+     */
+    public TokenBucketRateLimiter(int capacidad, double porSegundo, int franjas) {
+        if (capacidad < 1 || porSegundo <= 0) {
+            throw new IllegalArgumentException("La capacidad y el ritmo del limitador deben ser positivos");
+        }
+        int tamano = Integer.highestOneBit(Math.max(1, franjas - 1)) << 1;
+        this.franjas = new AtomicLongArray(tamano);
+        this.mascara = tamano - 1;
+        this.intervaloNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / porSegundo));
+        this.toleranciaNanos = intervaloNanos * (capacidad - 1);
+    }
+
+    /**
+     * Intenta consumir un token para la clave
+     *
+     * @return 0 si se admite la petición; si no, los nanosegundos hasta que habrá un token libre
+     */
+    public long tryAcquire(String clave) {
+        int indice = indice(clave);
+        while (true) {
+            long ahora = System.nanoTime();
+            long llegada = franjas.get(indice);
+            // Franja sin usar o parada hace tiempo: el cubo está lleno
+            long base = llegada == 0 || llegada - ahora < 0 ? ahora : llegada;
+            long espera = base - toleranciaNanos - ahora;
+            if (espera > 0) {
+                return espera;
+            }
+            if (franjas.compareAndSet(indice, llegada, base + intervaloNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    private int indice(String clave) {
+        int h = clave.hashCode();
+        // Mezcla los bits altos para repartir mejor claves parecidas (IPs consecutivas)
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        h ^= (h >>> 16);
+        return h & mascara;
+    }
+}
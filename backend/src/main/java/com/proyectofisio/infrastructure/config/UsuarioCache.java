@@ -0,0 +1,76 @@
+package com.proyectofisio.infrastructure.config;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.proyectofisio.domain.model.Usuario;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Caché acotada con TTL de usuarios, indexada por id y por email.
+ * Las entradas se guardan por id y el índice por email apunta al id, así una sola
+ * invalidación elimina ambas claves. Se devuelven copias para que los llamantes
+ * puedan modificar el usuario sin alterar la entrada cacheada.
+ */
+@Component
+public class UsuarioCache implements MeterBinder {
+
+    private final CacheAcotada<Long, Usuario> porId;
+    private final Map<String, Long> idPorEmail = new ConcurrentHashMap<>();
+    private final boolean habilitada;
+
+    // El TTL es el tiempo máximo que un cambio hecho desde otra instancia puede tardar en verse
+    public UsuarioCache(
+            @Value("${app.cache.usuarios.max-size:5000}") int maxSize,
+            @Value("${app.cache.usuarios.ttl-ms:60000}") long ttlMs) {
+        this.porId = new CacheAcotada<>(maxSize, ttlMs, this::quitarEmail);
+        this.habilitada = maxSize > 0;
+    }
+
+    public Optional<Usuario> getPorId(Long id) {
+        return Optional.ofNullable(porId.get(id)).map(usuario -> usuario.toBuilder().build());
+    }
+
+    public Optional<Usuario> getPorEmail(String email) {
+        return getPorId(email != null ? idPorEmail.get(email) : null);
+    }
+
+    public void put(Usuario usuario) {
+        if (!habilitada || usuario == null || usuario.getId() == null) {
+            return;
+        }
+        Usuario anterior = porId.put(usuario.getId(), usuario.toBuilder().build());
+        if (anterior != null && anterior.getEmail() != null && !anterior.getEmail().equals(usuario.getEmail())) {
+            idPorEmail.remove(anterior.getEmail(), usuario.getId());
+        }
+        if (usuario.getEmail() != null) {
+            idPorEmail.put(usuario.getEmail(), usuario.getId());
+        }
+    }
+
+    public void invalidate(Long id) {
+        quitarEmail(id, porId.invalidate(id));
+    }
+
+    public void clear() {
+        porId.clear();
+        idPorEmail.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        porId.bindTo(registry, "usuario.cache", "caché de usuarios");
+    }
+
+    private void quitarEmail(Long id, Usuario usuario) {
+        if (usuario != null && usuario.getEmail() != null) {
+            idPorEmail.remove(usuario.getEmail(), id);
+        }
+    }
+}
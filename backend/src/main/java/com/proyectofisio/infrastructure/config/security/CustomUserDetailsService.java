@@ -3,6 +3,7 @@ package com.proyectofisio.infrastructure.config.security;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -18,7 +19,7 @@ import java.util.Collections;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UsuarioServicePort usuarioService;
 
@@ -40,4 +41,22 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .disabled(false)
                 .build();
     }
-} 
\ No newline at end of file
+
+    /**
+     * Lo invoca DaoAuthenticationProvider tras un login correcto cuando el hash guardado
+     * usa un factor de trabajo inferior al configurado: se guarda el hash recalculado
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        Usuario usuario = usuarioService.obtenerUsuarioPorEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con email: " + user.getUsername()));
+
+        usuario.setContraseña(newPassword);
+        usuarioService.actualizarUsuario(usuario);
+        log.info("Hash de contraseña actualizado al nuevo factor de trabajo para: {}", usuario.getEmail());
+
+        return User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+}
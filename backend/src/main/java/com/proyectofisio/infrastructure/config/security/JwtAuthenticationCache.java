@@ -0,0 +1,83 @@
+package com.proyectofisio.infrastructure.config.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import com.proyectofisio.infrastructure.config.CacheAcotada;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Caché acotada de autenticaciones construidas a partir de JWT ya verificados.
+ * La clave es el hash SHA-256 del token (nunca el token en claro) y cada entrada
+ * caduca en el mismo instante que el claim "exp" del token.
+ */
+@Component
+public class JwtAuthenticationCache implements MeterBinder {
+
+    private final CacheAcotada<String, Authentication> entradas;
+
+    public JwtAuthenticationCache(@Value("${jwt.cache.max-size:10000}") int maxSize) {
+        // Sin TTL propio: cada entrada lleva la expiración de su token
+        this.entradas = new CacheAcotada<>(maxSize, 0);
+    }
+
+    /**
+     * Devuelve la autenticación cacheada del token o null si no está o ya ha expirado
+     */
+    public Authentication get(String token) {
+        return entradas.get(hash(token));
+    }
+
+    /**
+     * Guarda la autenticación de un token verificado hasta su instante de expiración
+     */
+    public void put(String token, Authentication authentication, long expiraEn) {
+        entradas.put(hash(token), authentication, expiraEn);
+    }
+
+    /**
+     * Elimina la entrada de un token concreto
+     */
+    public void invalidate(String token) {
+        entradas.invalidate(hash(token));
+    }
+
+    public void clear() {
+        entradas.clear();
+    }
+
+    public long getAciertos() {
+        return entradas.getAciertos();
+    }
+
+    public long getFallos() {
+        return entradas.getFallos();
+    }
+
+    public int size() {
+        return entradas.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        entradas.bindTo(registry, "jwt.cache", "caché de JWT verificados");
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.proyectofisio.infrastructure.config.security;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -9,98 +10,181 @@ import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import com.proyectofisio.application.ports.input.UsuarioServicePort;
+import com.proyectofisio.domain.model.Usuario;
+
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class JwtTokenProvider {
 
+    private static final String CLAIM_AUTHORITIES = "authorities";
+    private static final String CLAIM_USUARIO_ID = "uid";
+    private static final String CLAIM_EMPRESA_ID = "empresaId";
+    private static final String CLAIM_ROL = "rol";
+
+    private final JwtAuthenticationCache authenticationCache;
+    private final UsuarioServicePort usuarioService;
+
     @Value("${jwt.secret}")
     private String secretKey;
 
     @Value("${jwt.expiration}")
     private long validityInMilliseconds;
 
-    public String createToken(String username, String role) {
-        Claims claims = Jwts.claims().setSubject(username);
-        claims.put("authorities", Collections.singletonList(role));
+    // Clave y parser inmutables, construidos una sola vez y compartidos entre hilos
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    // Las autoridades se reutilizan entre peticiones: solo existen unos pocos roles
+    private final Map<List<String>, List<GrantedAuthority>> authoritiesCache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
+    /**
+     * Genera el JWT del usuario incluyendo su id, empresa y rol como claims,
+     * de modo que las peticiones autenticadas no necesiten consultar el usuario
+     */
+    public String createToken(Usuario usuario) {
+        return emitirToken(usuario).token();
+    }
+
+    /**
+     * Genera el JWT con un jti único y devuelve también los datos necesarios
+     * para poder revocarlo antes de su expiración
+     */
+    public TokenEmitido emitirToken(Usuario usuario) {
+        String role = usuario.getRol().name();
+        Claims claims = Jwts.claims().setSubject(usuario.getEmail());
+        claims.put(CLAIM_AUTHORITIES, Collections.singletonList(role));
+        claims.put(CLAIM_USUARIO_ID, usuario.getId());
+        claims.put(CLAIM_EMPRESA_ID, usuario.getEmpresaId());
+        claims.put(CLAIM_ROL, role);
 
+        String jti = UUID.randomUUID().toString();
         Date now = new Date();
         Date validity = new Date(now.getTime() + validityInMilliseconds);
 
-        return Jwts.builder()
+        String token = Jwts.builder()
                 .setClaims(claims)
+                .setId(jti)
                 .setIssuedAt(now)
                 .setExpiration(validity)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
+        return new TokenEmitido(token, jti, validity.getTime());
+    }
+
+    /**
+     * Valida el token y devuelve su autenticación en una sola pasada.
+     * Los tokens ya verificados se sirven desde la caché sin volver a comprobar la firma.
+     * 
+     * @return la autenticación o null si el token no es válido o ha expirado
+     */
+    public Authentication resolveAuthentication(String token) {
+        Authentication cached = authenticationCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            Claims claims = extractClaims(token);
+            if (claims.getExpiration().before(new Date())) {
+                return null;
+            }
+            Authentication authentication = buildAuthentication(claims);
+            authenticationCache.put(token, authentication, claims.getExpiration().getTime());
+            return authentication;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     public Authentication getAuthentication(String token) {
+        Authentication cached = authenticationCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
         Claims claims = extractClaims(token);
+        Authentication authentication = buildAuthentication(claims);
+        authenticationCache.put(token, authentication, claims.getExpiration().getTime());
+        return authentication;
+    }
+
+    public boolean validateToken(String token) {
+        return resolveAuthentication(token) != null;
+    }
+
+    private Authentication buildAuthentication(Claims claims) {
         String username = claims.getSubject();
         
-        List<String> authorities = claims.get("authorities", List.class);
-        
-        log.info("=== DEBUG TOKEN ===");
-        log.info("Username extraído del token: {}", username);
-        log.info("Autoridades extraídas del token: {}", authorities);
-        
-        List<SimpleGrantedAuthority> grantedAuthorities = authorities.stream()
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+        List<String> authorities = claims.get(CLAIM_AUTHORITIES, List.class);
+        Long usuarioId = claims.get(CLAIM_USUARIO_ID, Long.class);
+        Long empresaId = claims.get(CLAIM_EMPRESA_ID, Long.class);
+        String rol = claims.get(CLAIM_ROL, String.class);
         
-        log.info("Autoridades creadas: {}", grantedAuthorities);
+        // Tokens emitidos antes de incluir los claims del usuario: se resuelven una vez
+        // contra la base de datos y el resultado queda en la caché hasta que expiren
+        if (usuarioId == null) {
+            Usuario usuario = usuarioService.obtenerUsuarioPorEmail(username)
+                    .orElseThrow(() -> new JwtException("Usuario del token no encontrado"));
+            usuarioId = usuario.getId();
+            empresaId = usuario.getEmpresaId();
+            rol = usuario.getRol().name();
+        }
         
-        UserDetails userDetails = org.springframework.security.core.userdetails.User
-                .withUsername(username)
-                .password("")
-                .authorities(grantedAuthorities)
-                .accountExpired(false)
-                .accountLocked(false)
-                .credentialsExpired(false)
-                .disabled(false)
-                .build();
+        log.debug("Token verificado para {} con autoridades {}", username, authorities);
         
-        log.info("Autoridades asignadas al usuario: {}", userDetails.getAuthorities());
+        UsuarioPrincipal principal = new UsuarioPrincipal(
+                usuarioId, username, empresaId, rol, toGrantedAuthorities(authorities), claims.getId());
         
-        return new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
+        return new UsernamePasswordAuthenticationToken(principal, "", principal.getAuthorities());
     }
 
-    public boolean validateToken(String token) {
-        try {
-            Claims claims = extractClaims(token);
-            return !claims.getExpiration().before(new Date());
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+    private List<GrantedAuthority> toGrantedAuthorities(List<String> authorities) {
+        if (authorities == null || authorities.isEmpty()) {
+            return List.of();
         }
+        return authoritiesCache.computeIfAbsent(List.copyOf(authorities), roles -> roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableList()));
     }
 
     private Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Key getSigningKey() {
-        byte[] keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     public String getUsername(String token) {
         return extractClaims(token).getSubject();
     }
+
+    public long getValidityInMilliseconds() {
+        return validityInMilliseconds;
+    }
+
+    public record TokenEmitido(String token, String jti, long expiraEn) {
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.proyectofisio.infrastructure.config.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.proyectofisio.application.ports.output.PasswordHashingPort;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import com.proyectofisio.application.ports.output.PasswordHashingPort;
+
+import io.micrometer.core.instrument.Gauge;
+import com.proyectofisio.application.ports.output.PasswordHashingPort;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import com.proyectofisio.application.ports.output.PasswordHashingPort;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pool acotado y dedicado para el trabajo de BCrypt (login y registro).
+ * Limita cuántos hashes se calculan a la vez y, cuando la cola se llena,
+ * rechaza la tarea en lugar de ocupar todos los hilos de Tomcat.
+ * Los hilos del pool solo calculan hashes: los futuros se completan en el executor
+ * de tareas de la aplicación, donde corren las etapas encadenadas (guardar, emitir
+ * la sesión, enviar correos).
+ */
+@Component
+@Slf4j
+public class PasswordHashingExecutor implements PasswordHashingPort, MeterBinder {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Executor continuaciones;
+    private final long timeoutMs;
+    private final LongAdder rechazadas = new LongAdder();
+
+    public PasswordHashingExecutor(
+            PasswordEncoder passwordEncoder,
+            @Value("${app.security.password-hashing.threads:0}") int hilos,
+            @Value("${app.security.password-hashing.queue-capacity:100}") int capacidadCola,
+            @Value("${app.security.password-hashing.timeout-ms:10000}") long timeoutMs,
+            @Qualifier("applicationTaskExecutor") Executor continuaciones) {
+        this.passwordEncoder = passwordEncoder;
+        this.continuaciones = continuaciones;
+        this.timeoutMs = timeoutMs;
+        int tamano = hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolExecutor(tamano, tamano, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Pool de hashing de contraseñas: {} hilos, cola de {}", tamano, capacidadCola);
+    }
+
+    /**
+     * Ejecuta la tarea en el pool de hashing sin bloquear al llamante. La tarea debe limitarse
+     * al trabajo de BCrypt; lo que se encadene al futuro corre fuera del pool.
+     * Si el pool está saturado el futuro se completa con RejectedExecutionException.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> tarea) {
+        return fueraDelPool(enPool(tarea));
+    }
+
+    /**
+     * Calcula el hash en el pool sin bloquear al llamante. Si el pool está saturado o el hash
+     * no termina a tiempo, el futuro se completa con RejectedExecutionException.
+     */
+    @Override
+    public CompletableFuture<String> encodeAsync(CharSequence contrasena) {
+        return fueraDelPool(enPool(() -> passwordEncoder.encode(contrasena))
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(ex -> {
+                    Throwable causa = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (causa instanceof TimeoutException) {
+                        return CompletableFuture.failedFuture(new RejectedExecutionException(
+                                "Tiempo de espera agotado en el hashing de contraseña", causa));
+                    }
+                    return CompletableFuture.failedFuture(causa);
+                }));
+    }
+
+    private <T> CompletableFuture<T> enPool(Supplier<T> tarea) {
+        try {
+            return CompletableFuture.supplyAsync(tarea, executor);
+        } catch (RejectedExecutionException e) {
+            rechazadas.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Completa el futuro en el executor de la aplicación para que el hilo de hashing quede libre
+    private <T> CompletableFuture<T> fueraDelPool(CompletableFuture<T> futuro) {
+        return futuro.whenCompleteAsync((resultado, ex) -> { }, continuaciones);
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("password.hashing.queue.size", executor, e -> e.getQueue().size())
+                .description("Tareas de hashing esperando en la cola")
+                .register(registry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hilos calculando hashes en este momento")
+                .register(registry);
+        FunctionCounter.builder("password.hashing.completed", executor, ThreadPoolExecutor::getCompletedTaskCount)
+                .description("Tareas de hashing completadas")
+                .register(registry);
+        FunctionCounter.builder("password.hashing.rejected", rechazadas, LongAdder::sum)
+                .description("Tareas rechazadas por pool saturado")
+                .register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger contador = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread hilo = new Thread(r, "password-hashing-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        }
+    }
+}
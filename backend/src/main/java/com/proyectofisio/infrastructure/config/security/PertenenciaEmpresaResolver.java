@@ -0,0 +1,123 @@
+package com.proyectofisio.infrastructure.config.security;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.EjercicioRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.PasoSubprogramaRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.ProgramaPersonalizadoRepository;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.SubprogramaRepository;
+import com.proyectofisio.infrastructure.config.CacheAcotada;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Resuelve a qué empresa pertenece un programa, subprograma, paso o ejercicio con una consulta
+ * escalar por clave primaria, sin cargar la entidad ni el árbol del programa.
+ *
+ * Se usa desde la seguridad de métodos:
+ * {@code @PreAuthorize("... and @pertenencia.programa(#id, authentication)")}.
+ * La empresa de un recurso no cambia nunca, así que las entradas solo se descartan al borrarlo.
+ */
+@Component("pertenencia")
+public class PertenenciaEmpresaResolver implements MeterBinder {
+
+    public enum Tipo { PROGRAMA, SUBPROGRAMA, PASO, EJERCICIO }
+
+    private final ProgramaPersonalizadoRepository programaRepository;
+    private final SubprogramaRepository subprogramaRepository;
+    private final PasoSubprogramaRepository pasoSubprogramaRepository;
+    private final EjercicioRepository ejercicioRepository;
+
+    private final CacheAcotada<Clave, Long> empresas;
+
+    public PertenenciaEmpresaResolver(ProgramaPersonalizadoRepository programaRepository,
+            SubprogramaRepository subprogramaRepository,
+            PasoSubprogramaRepository pasoSubprogramaRepository,
+            EjercicioRepository ejercicioRepository,
+            @Value("${app.cache.pertenencia.max-size:20000}") int maxSize) {
+        this.programaRepository = programaRepository;
+        this.subprogramaRepository = subprogramaRepository;
+        this.pasoSubprogramaRepository = pasoSubprogramaRepository;
+        this.ejercicioRepository = ejercicioRepository;
+        this.empresas = new CacheAcotada<>(maxSize, 0);
+    }
+
+    public boolean programa(Long id, Authentication authentication) {
+        return perteneceAEmpresaDelUsuario(Tipo.PROGRAMA, id, authentication);
+    }
+
+    public boolean subprograma(Long id, Authentication authentication) {
+        return perteneceAEmpresaDelUsuario(Tipo.SUBPROGRAMA, id, authentication);
+    }
+
+    public boolean paso(Long id, Authentication authentication) {
+        return perteneceAEmpresaDelUsuario(Tipo.PASO, id, authentication);
+    }
+
+    public boolean ejercicio(Long id, Authentication authentication) {
+        return perteneceAEmpresaDelUsuario(Tipo.EJERCICIO, id, authentication);
+    }
+
+    /**
+     * Empresa propietaria del recurso o null si no existe
+     */
+    public Long empresaDe(Tipo tipo, Long id) {
+        if (id == null) {
+            return null;
+        }
+        Clave clave = new Clave(tipo, id);
+        Long empresaId = empresas.get(clave);
+        if (empresaId != null) {
+            return empresaId;
+        }
+
+        empresaId = consulta(tipo).apply(id);
+        // Los inexistentes no se guardan: el id podría crearse más tarde
+        if (empresaId != null) {
+            empresas.put(clave, empresaId);
+        }
+        return empresaId;
+    }
+
+    /**
+     * Descarta la entrada de un recurso eliminado
+     */
+    public void invalidate(Tipo tipo, Long id) {
+        empresas.invalidate(new Clave(tipo, id));
+    }
+
+    public void clear() {
+        empresas.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        empresas.bindTo(registry, "pertenencia.cache", "caché de empresa propietaria");
+    }
+
+    private boolean perteneceAEmpresaDelUsuario(Tipo tipo, Long id, Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof UsuarioPrincipal principal)) {
+            return false;
+        }
+        Long empresaId = empresaDe(tipo, id);
+        return empresaId != null && Objects.equals(empresaId, principal.getEmpresaId());
+    }
+
+    private Function<Long, Long> consulta(Tipo tipo) {
+        return switch (tipo) {
+            case PROGRAMA -> id -> programaRepository.findEmpresaIdById(id).orElse(null);
+            case SUBPROGRAMA -> id -> subprogramaRepository.findEmpresaIdById(id).orElse(null);
+            case PASO -> id -> pasoSubprogramaRepository.findEmpresaIdById(id).orElse(null);
+            case EJERCICIO -> id -> ejercicioRepository.findEmpresaIdById(id).orElse(null);
+        };
+    }
+
+    private record Clave(Tipo tipo, Long id) {
+    }
+}
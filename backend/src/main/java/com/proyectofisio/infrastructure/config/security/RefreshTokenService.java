@@ -0,0 +1,174 @@
+package com.proyectofisio.infrastructure.config.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.proyectofisio.application.ports.input.UsuarioServicePort;
+import com.proyectofisio.domain.model.Usuario;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.RefreshTokenEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.RefreshTokenRepository;
+import com.proyectofisio.infrastructure.config.security.JwtTokenProvider.TokenEmitido;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sesiones revocables: un access token JWT de vida corta más un refresh token opaco
+ * guardado (como hash) en base de datos. Los refresh tokens se rotan en cada uso; si
+ * se presenta uno ya rotado se asume que ha sido robado y se cierran todas las sesiones
+ * del usuario, salvo dentro de una ventana corta tras la rotación (varias pestañas que
+ * renuevan a la vez).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final TokenRevocationList tokenRevocationList;
+    private final UsuarioServicePort usuarioService;
+
+    @Value("${jwt.refresh-expiration:1209600000}")
+    private long refreshValidityInMilliseconds;
+
+    @Value("${jwt.refresh-grace-ms:10000}")
+    private long refreshGraceInMilliseconds;
+
+    /**
+     * Emite un access token y un refresh token nuevos para el usuario
+     */
+    @Transactional
+    public Sesion iniciarSesion(Usuario usuario) {
+        TokenEmitido accessToken = jwtTokenProvider.emitirToken(usuario);
+        String refreshToken = generarValor();
+
+        refreshTokenRepository.save(RefreshTokenEntity.builder()
+                .tokenHash(hash(refreshToken))
+                .usuarioId(usuario.getId())
+                .accessJti(accessToken.jti())
+                .accessExpiracion(toLocalDateTime(accessToken.expiraEn()))
+                .fechaExpiracion(LocalDateTime.now().plus(Duration.ofMillis(refreshValidityInMilliseconds)))
+                .build());
+
+        return new Sesion(accessToken.token(), refreshToken);
+    }
+
+    /**
+     * Rota el refresh token y devuelve una sesión nueva con los datos actuales del usuario
+     * 
+     * @return la sesión nueva o vacío si el refresh token no es válido
+     */
+    @Transactional
+    public Optional<Sesion> renovar(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return Optional.empty();
+        }
+        Optional<RefreshTokenEntity> tokenOpt = refreshTokenRepository.findByTokenHash(hash(refreshToken));
+        if (tokenOpt.isEmpty()) {
+            return Optional.empty();
+        }
+
+        RefreshTokenEntity token = tokenOpt.get();
+        if (token.getRevocado()) {
+            if (rotadoRecientemente(token)) {
+                // Otra petición del mismo cliente lo acaba de rotar: se rechaza sin cerrar sesiones
+                return Optional.empty();
+            }
+            log.warn("Reutilización de un refresh token revocado del usuario {}: se cierran todas sus sesiones",
+                    token.getUsuarioId());
+            revocarSesionesDeUsuario(token.getUsuarioId());
+            return Optional.empty();
+        }
+        if (token.getFechaExpiracion().isBefore(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        // Dos renovaciones simultáneas con el mismo token: solo gana una
+        if (refreshTokenRepository.marcarRevocado(token.getId(), LocalDateTime.now()) == 0) {
+            return Optional.empty();
+        }
+
+        return usuarioService.obtenerUsuarioPorId(token.getUsuarioId())
+                .map(this::iniciarSesion);
+    }
+
+    /**
+     * Revoca el refresh token y el último access token emitido con él
+     */
+    @Transactional
+    public void cerrarSesion(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(hash(refreshToken)).ifPresent(this::revocar);
+    }
+
+    /**
+     * Revoca todas las sesiones activas del usuario (cambio de contraseña, baja, robo de token)
+     */
+    @Transactional
+    public void revocarSesionesDeUsuario(Long usuarioId) {
+        refreshTokenRepository.findByUsuarioIdAndRevocadoFalse(usuarioId).forEach(this::revocar);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgarExpirados() {
+        int eliminados = refreshTokenRepository.deleteExpirados(LocalDateTime.now());
+        if (eliminados > 0) {
+            log.debug("Eliminados {} refresh tokens expirados", eliminados);
+        }
+    }
+
+    private void revocar(RefreshTokenEntity token) {
+        token.setRevocado(true);
+        refreshTokenRepository.save(token);
+        if (token.getAccessJti() != null && token.getAccessExpiracion() != null) {
+            tokenRevocationList.revocar(token.getAccessJti(),
+                    token.getAccessExpiracion().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    private boolean rotadoRecientemente(RefreshTokenEntity token) {
+        return token.getFechaRotacion() != null && token.getFechaRotacion()
+                .isAfter(LocalDateTime.now().minus(Duration.ofMillis(refreshGraceInMilliseconds)));
+    }
+
+    private static String generarValor() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String hash(String valor) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(valor.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    public record Sesion(String accessToken, String refreshToken) {
+    }
+}
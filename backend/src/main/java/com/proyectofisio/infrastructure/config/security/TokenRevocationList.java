@@ -0,0 +1,135 @@
+package com.proyectofisio.infrastructure.config.security;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.JwtRevocadoEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.repository.JwtRevocadoRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lista en memoria de access tokens revocados (por jti), consultada en cada petición
+ * sin tocar la base de datos.
+ *
+ * La tabla jwt_revocados es la fuente de verdad: las revocaciones locales se añaden al
+ * momento y las de otras instancias se incorporan con una sincronización incremental
+ * periódica. Como los access tokens son de vida corta, el conjunto se mantiene pequeño.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationList implements MeterBinder {
+
+    // Margen para no perder revocaciones escritas mientras se sincronizaba
+    private static final long MARGEN_SINCRONIZACION_SEGUNDOS = 5;
+
+    private final JwtRevocadoRepository jwtRevocadoRepository;
+
+    // jti -> instante de expiración del token en milisegundos
+    private final Map<String, Long> revocados = new ConcurrentHashMap<>();
+    private final LongAdder rechazados = new LongAdder();
+
+    private volatile LocalDateTime ultimaSincronizacion = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        Long expiraEn = revocados.get(jti);
+        if (expiraEn == null) {
+            return false;
+        }
+        rechazados.increment();
+        return true;
+    }
+
+    /**
+     * Revoca el access token hasta su expiración y lo persiste para el resto de instancias
+     */
+    public void revocar(String jti, long expiraEn) {
+        if (jti == null || expiraEn <= System.currentTimeMillis()) {
+            return;
+        }
+        revocados.put(jti, expiraEn);
+        jwtRevocadoRepository.save(JwtRevocadoEntity.builder()
+                .jti(jti)
+                .fechaExpiracion(toLocalDateTime(expiraEn))
+                .fechaRevocacion(LocalDateTime.now())
+                .build());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarInicial() {
+        sincronizar();
+        log.info("Lista de JWT revocados cargada: {} entradas", revocados.size());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:30000}",
+            initialDelayString = "${jwt.revocation.sync-interval-ms:30000}")
+    public void sincronizar() {
+        LocalDateTime inicio = LocalDateTime.now();
+        LocalDateTime desde = ultimaSincronizacion.minusSeconds(MARGEN_SINCRONIZACION_SEGUNDOS);
+        try {
+            List<JwtRevocadoEntity> nuevos = jwtRevocadoRepository
+                    .findByFechaRevocacionAfterAndFechaExpiracionAfter(desde, inicio);
+            for (JwtRevocadoEntity revocado : nuevos) {
+                revocados.put(revocado.getJti(), toEpochMillis(revocado.getFechaExpiracion()));
+            }
+            ultimaSincronizacion = inicio;
+        } catch (Exception e) {
+            // Se reintenta en la siguiente ejecución desde la misma marca de tiempo
+            log.warn("No se pudo sincronizar la lista de JWT revocados: {}", e.getMessage());
+        }
+
+        long ahora = System.currentTimeMillis();
+        revocados.values().removeIf(expiraEn -> expiraEn <= ahora);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgarExpirados() {
+        int eliminados = jwtRevocadoRepository.deleteExpirados(LocalDateTime.now());
+        if (eliminados > 0) {
+            log.debug("Eliminadas {} revocaciones de JWT ya expirados", eliminados);
+        }
+    }
+
+    public int size() {
+        return revocados.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jwt.revocation.size", revocados, Map::size)
+                .description("Access tokens revocados que aún no han expirado")
+                .register(registry);
+        FunctionCounter.builder("jwt.revocation.rejected", rechazados, LongAdder::sum)
+                .description("Peticiones rechazadas por presentar un token revocado")
+                .register(registry);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toEpochMillis(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,75 @@
+package com.proyectofisio.infrastructure.config.security;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Principal autenticado construido a partir de los claims del JWT.
+ * Lleva el id del usuario y de su empresa para que los controladores puedan
+ * inyectarlo con @AuthenticationPrincipal sin volver a consultar la base de datos.
+ */
+@Getter
+@ToString
+public class UsuarioPrincipal implements UserDetails {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String email;
+    private final Long empresaId;
+    private final String rol;
+    private final List<GrantedAuthority> authorities;
+    // jti del access token con el que se autenticó la petición (null en tokens antiguos)
+    private final String tokenId;
+
+    public UsuarioPrincipal(Long id, String email, Long empresaId, String rol, List<GrantedAuthority> authorities,
+            String tokenId) {
+        this.id = id;
+        this.email = email;
+        this.empresaId = empresaId;
+        this.rol = rol;
+        this.authorities = authorities;
+        this.tokenId = tokenId;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return "";
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
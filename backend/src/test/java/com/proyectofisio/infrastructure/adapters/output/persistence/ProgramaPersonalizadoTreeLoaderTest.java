@@ -0,0 +1,179 @@
+package com.proyectofisio.infrastructure.adapters.output.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.proyectofisio.domain.model.ProgramaPersonalizado;
+import com.proyectofisio.domain.model.Subprograma;
+import com.proyectofisio.domain.model.enums.RolUsuario;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EjercicioEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.EmpresaEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.PasoSubprogramaEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.ProgramaPersonalizadoEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.SubprogramaEjercicioEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.SubprogramaEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.entity.UsuarioEntity;
+import com.proyectofisio.infrastructure.adapters.output.persistence.mapper.ReferenciaResolver;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * El árbol de un programa se carga con el mismo número de sentencias sea cual sea su tamaño.
+ *
+ * Las consultas son de PostgreSQL, así que el test usa la base de datos del perfil "test"
+ * (TEST_DATABASE_URL, por defecto fisio_test en localhost) y se omite si no está disponible.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(ProgramaPersonalizadoTreeLoaderTest.Config.class)
+class ProgramaPersonalizadoTreeLoaderTest {
+
+    static final String URL = System.getenv().getOrDefault("TEST_DATABASE_URL",
+            "jdbc:postgresql://localhost:5432/fisio_test?sslmode=disable");
+    static final String USUARIO = System.getenv().getOrDefault("TEST_DATABASE_USERNAME", "postgres");
+    static final String CONTRASENA = System.getenv().getOrDefault("TEST_DATABASE_PASSWORD", "postgres");
+
+    @TestConfiguration
+    @ComponentScan(basePackageClasses = ReferenciaResolver.class)
+    @Import(ProgramaPersonalizadoTreeLoader.class)
+    static class Config {
+    }
+
+    @Autowired
+    private ProgramaPersonalizadoTreeLoader treeLoader;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private EmpresaEntity empresa;
+    private UsuarioEntity usuario;
+    private int secuencia;
+
+    @BeforeAll
+    static void baseDeDatosDisponible() {
+        DriverManager.setLoginTimeout(2);
+        try (Connection ignored = DriverManager.getConnection(URL, USUARIO, CONTRASENA)) {
+            // disponible
+        } catch (Exception e) {
+            assumeTrue(false, "PostgreSQL de test no disponible en " + URL + ": " + e.getMessage());
+        }
+    }
+
+    @BeforeEach
+    void crearEmpresa() {
+        empresa = em.persist(EmpresaEntity.builder()
+                .nombre("Clínica test")
+                .nif("T" + System.nanoTime())
+                .build());
+        usuario = em.persist(UsuarioEntity.builder()
+                .nombre("Fisio")
+                .apellidos("Test")
+                .email("fisio" + System.nanoTime() + "@test.local")
+                .rol(RolUsuario.FISIOTERAPEUTA)
+                .contraseña("x")
+                .empresa(empresa)
+                .build());
+    }
+
+    @Test
+    void cargarProgramaNoDependeDelTamano() {
+        Long pequeno = crearPrograma(1, 1, 1);
+        Long grande = crearPrograma(12, 5, 3);
+
+        long sentenciasPequeno = contarSentencias(() -> treeLoader.cargarPrograma(pequeno));
+        ProgramaPersonalizado programa = treeLoader.cargarPrograma(grande).orElseThrow();
+        long sentenciasGrande = contarSentencias(() -> treeLoader.cargarPrograma(grande));
+
+        assertThat(programa.getSubprogramas()).hasSize(12);
+        Subprograma primero = programa.getSubprogramas().get(0);
+        assertThat(primero.getEjercicios()).hasSize(5);
+        assertThat(primero.getPasos()).hasSize(3);
+        assertThat(primero.getPasos().get(0).getImagenesUrls()).hasSize(2);
+        assertThat(sentenciasGrande).isEqualTo(sentenciasPequeno);
+    }
+
+    @Test
+    void cargarSubprogramasNoDependeDelTamano() {
+        Long pequeno = crearPrograma(1, 1, 1);
+        Long grande = crearPrograma(12, 5, 3);
+
+        long sentenciasPequeno = contarSentencias(() -> treeLoader.cargarSubprogramas(pequeno));
+        List<Subprograma> subprogramas = treeLoader.cargarSubprogramas(grande);
+        long sentenciasGrande = contarSentencias(() -> treeLoader.cargarSubprogramas(grande));
+
+        assertThat(subprogramas).hasSize(12);
+        assertThat(subprogramas).extracting(Subprograma::getOrden).isSorted();
+        assertThat(sentenciasGrande).isEqualTo(sentenciasPequeno);
+    }
+
+    // Sentencias preparadas por la carga, con la sesión vacía para que nada venga de la caché de primer nivel
+    private long contarSentencias(Runnable carga) {
+        em.clear();
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        carga.run();
+        long sentencias = estadisticas.getPrepareStatementCount();
+        em.clear();
+        return sentencias;
+    }
+
+    private Long crearPrograma(int subprogramas, int ejerciciosPorSubprograma, int pasosPorSubprograma) {
+        ProgramaPersonalizadoEntity programa = em.persist(ProgramaPersonalizadoEntity.builder()
+                .nombre("Programa " + (++secuencia))
+                .empresa(empresa)
+                .creadoPorUsuario(usuario)
+                .build());
+        for (int s = 1; s <= subprogramas; s++) {
+            SubprogramaEntity subprograma = em.persist(SubprogramaEntity.builder()
+                    .nombre("Subprograma " + s)
+                    .orden(subprogramas - s + 1)
+                    .programaPersonalizado(programa)
+                    .build());
+            for (int e = 1; e <= ejerciciosPorSubprograma; e++) {
+                EjercicioEntity ejercicio = em.persist(EjercicioEntity.builder()
+                        .nombre("Ejercicio " + s + "." + e)
+                        .empresa(empresa)
+                        .creadoPorUsuario(usuario)
+                        .build());
+                em.persist(SubprogramaEjercicioEntity.builder()
+                        .subprograma(subprograma)
+                        .ejercicio(ejercicio)
+                        .orden(e)
+                        .build());
+            }
+            for (int p = 1; p <= pasosPorSubprograma; p++) {
+                em.persist(PasoSubprogramaEntity.builder()
+                        .numeroPaso(p)
+                        .subprograma(subprograma)
+                        .imagenesUrls(new ArrayList<>(List.of("/uploads/a.png", "/uploads/b.png")))
+                        .build());
+            }
+        }
+        em.flush();
+        em.clear();
+        return programa.getId();
+    }
+}
@@ -302,14 +302,16 @@ const AccesoPrograma = () => {
         const data = await programasPersonalizadosService.validarTokenPrograma(token);
         
         if (data) {
+          // Los subprogramas vienen ya ordenados dentro del programa
+          const subprogramasPrograma = data.programa?.subprogramas || [];
           setPrograma(data.programa);
-          setSubprogramas(data.subprogramas || []);
+          setSubprogramas(subprogramasPrograma);
           setPacienteId(data.pacienteId);
           setComentarios(data.comentarios || []);
           
           // Expandir el primer subprograma por defecto si hay alguno
-          if (data.subprogramas && data.subprogramas.length > 0) {
-            setExpanded(data.subprogramas[0].id);
+          if (subprogramasPrograma.length > 0) {
+            setExpanded(subprogramasPrograma[0].id);
           }
         }
       } catch (err) {
@@ -30,7 +30,8 @@ axiosInstance.interceptors.request.use(
         if (tokenParts.length === 3) {
           const payload = JSON.parse(atob(tokenParts[1]));
           const exp = payload.exp * 1000; // Convertir a milisegundos
-          if (Date.now() >= exp) {
+          // Con refresh token la respuesta 401 se encarga de renovarlo
+          if (Date.now() >= exp && !localStorage.getItem('refreshToken')) {
             console.error('Token expirado');
             localStorage.removeItem('token');
             localStorage.removeItem('user');
@@ -57,6 +58,25 @@ axiosInstance.interceptors.request.use(
   }
 );
 
+// Renovación en curso compartida: varios 401 simultáneos esperan al mismo refresh
+// en lugar de enviar cada uno el mismo refresh token (el servidor lo tomaría por reutilización)
+let renovacionEnCurso = null;
+
+const renovarSesion = (refreshToken) => {
+  if (!renovacionEnCurso) {
+    renovacionEnCurso = axios.post(`${config.API_URL}/auth/refresh`, { refreshToken })
+      .then((refreshResponse) => {
+        localStorage.setItem('token', refreshResponse.data.token);
+        localStorage.setItem('refreshToken', refreshResponse.data.refreshToken);
+        return refreshResponse.data.token;
+      })
+      .finally(() => {
+        renovacionEnCurso = null;
+      });
+  }
+  return renovacionEnCurso;
+};
+
 // Interceptor para las respuestas
 axiosInstance.interceptors.response.use(
   (response) => {
@@ -66,7 +86,7 @@ axiosInstance.interceptors.response.use(
     console.log('Headers:', response.headers);
     return response;
   },
-  (error) => {
+  async (error) => {
     console.log('=== INTERCEPTOR RESPONSE ERROR ===');
     if (error.response) {
       console.error('URL:', error.config.url);
@@ -74,8 +94,23 @@ axiosInstance.interceptors.response.use(
       console.error('Headers:', error.response.headers);
       console.error('Data:', error.response.data);
       
+      // El access token es de vida corta: se intenta renovar una vez con el refresh token
+      const refreshToken = localStorage.getItem('refreshToken');
+      if (error.response.status === 401 && refreshToken && !error.config._retry &&
+          !error.config.url.includes('/auth/')) {
+        error.config._retry = true;
+        try {
+          const nuevoToken = await renovarSesion(refreshToken);
+          error.config.headers['Authorization'] = `Bearer ${nuevoToken}`;
+          return axiosInstance(error.config);
+        } catch (refreshError) {
+          console.error('No se pudo renovar la sesión:', refreshError);
+        }
+      }
+      
       if (error.response.status === 401) {
         console.error('Sesión expirada o no autorizada');
+        localStorage.removeItem('refreshToken');
         localStorage.removeItem('token');
         localStorage.removeItem('user');
         localStorage.removeItem('lastAuthentication');
@@ -145,6 +180,9 @@ const authService = {
             if (response.data && response.data.token) {
                 // Guardar token
                 localStorage.setItem('token', response.data.token);
+                if (response.data.refreshToken) {
+                    localStorage.setItem('refreshToken', response.data.refreshToken);
+                }
                 
                 // La estructura del usuario puede variar, así que intentamos ser flexibles
                 let userData = null;
@@ -181,6 +219,12 @@ const authService = {
     },
   
     logout: () => {
+        // Revocar la sesión en el servidor sin bloquear el cierre local
+        const refreshToken = localStorage.getItem('refreshToken');
+        if (refreshToken) {
+            axiosInstance.post('/auth/logout', { refreshToken }).catch(() => {});
+            localStorage.removeItem('refreshToken');
+        }
         localStorage.removeItem('token');
         localStorage.removeItem('user');
         localStorage.removeItem('lastAuthentication');
@@ -992,9 +1036,8 @@ const programasPersonalizadosService = {
       console.log('URL completa de solicitud:', url);
       
       // Hacer la petición con el token de autenticación
-      const response = await axios.get(url, {
+      const response = await axiosInstance.get(url, {
         headers: {
-          'Authorization': `Bearer ${token}`,
           'Content-Type': 'application/json'
         },
         timeout: 30000
@@ -1032,9 +1075,8 @@ const programasPersonalizadosService = {
       console.log('URL completa de solicitud getProgramaById:', url);
       
       // Usar axios directamente con la URL completa
-      const response = await axios.get(url, {
+      const response = await axiosInstance.get(url, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         },
         timeout: 30000
@@ -1094,13 +1136,12 @@ const programasPersonalizadosService = {
       
       // Configurar headers
       const headers = {
-        'Authorization': `Bearer ${token}`,
         'Content-Type': 'application/json'
       };
       console.log('Headers de la solicitud:', headers);
       
       // Usar axios directamente con la URL completa
-      const response = await axios.post(url, programaConEmpresa, {
+      const response = await axiosInstance.post(url, programaConEmpresa, {
         headers,
         timeout: 30000
       });
@@ -1125,9 +1166,8 @@ const programasPersonalizadosService = {
       console.log('URL completa para actualizar programa:', url);
       
       // Usar axios directamente con la URL completa
-      const response = await axios.put(url, programaData, {
+      const response = await axiosInstance.put(url, programaData, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         },
         timeout: 30000
@@ -1148,9 +1188,8 @@ const programasPersonalizadosService = {
       console.log('URL completa para eliminar programa:', url);
       
       // Usar axios directamente con la URL completa
-      const response = await axios.delete(url, {
+      const response = await axiosInstance.delete(url, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         },
         timeout: 30000
@@ -1171,9 +1210,8 @@ const programasPersonalizadosService = {
       console.log('URL completa para generar tokens:', url);
       
       // Usar axios directamente con la URL completa
-      const response = await axios.post(url, { pacientesIds: pacienteIds }, {
+      const response = await axiosInstance.post(url, { pacientesIds: pacienteIds }, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         },
         timeout: 30000
@@ -1187,23 +1225,30 @@ const programasPersonalizadosService = {
     }
   },
 
+  // El backend pagina los tokens: se piden páginas de 100 siguiendo X-Next-Cursor hasta la última
   getTokensByProgramaId: async (programaId) => {
     try {
       // Forzar URL absoluta para evitar problemas de proxy
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/${programaId}/tokens`;
       console.log('URL completa para obtener tokens:', url);
       
-      // Usar axios directamente con la URL completa
-      const response = await axios.get(url, {
-        headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
-          'Content-Type': 'application/json'
-        },
-        timeout: 30000
-      });
-      
-      console.log('Tokens obtenidos correctamente:', response.data);
-      return response.data;
+      const tokens = [];
+      let antesDeId = null;
+      do {
+        // Usar axios directamente con la URL completa
+        const response = await axiosInstance.get(url, {
+          params: antesDeId ? { limite: 100, antesDeId } : { limite: 100 },
+          headers: {
+            'Content-Type': 'application/json'
+          },
+          timeout: 30000
+        });
+        tokens.push(...response.data);
+        antesDeId = response.headers['x-next-cursor'] || null;
+      } while (antesDeId);
+      
+      console.log('Tokens obtenidos correctamente:', tokens);
+      return tokens;
     } catch (error) {
       console.error('Error al obtener tokens de programa:', error);
       throw error;
@@ -1237,9 +1282,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/${programaId}/subprogramas`;
       
-      const response = await axios.get(url, {
+      const response = await axiosInstance.get(url, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         }
       });
@@ -1255,9 +1299,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/${subprogramaId}`;
       
-      const response = await axios.get(url, {
+      const response = await axiosInstance.get(url, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         }
       });
@@ -1273,9 +1316,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/${programaId}/subprogramas`;
       
-      const response = await axios.post(url, subprogramaData, {
+      const response = await axiosInstance.post(url, subprogramaData, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         }
       });
@@ -1291,9 +1333,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/${subprogramaId}`;
       
-      const response = await axios.put(url, subprogramaData, {
+      const response = await axiosInstance.put(url, subprogramaData, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         }
       });
@@ -1309,11 +1350,7 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/${subprogramaId}`;
       
-      await axios.delete(url, {
-        headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`
-        }
-      });
+      await axiosInstance.delete(url);
       
       return true;
     } catch (error) {
@@ -1327,9 +1364,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/${subprogramaId}/video`;
       
-      const response = await axios.post(url, formData, {
+      const response = await axiosInstance.post(url, formData, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'multipart/form-data'
         }
       });
@@ -1345,9 +1381,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/${subprogramaId}/imagenes`;
       
-      const response = await axios.post(url, formData, {
+      const response = await axiosInstance.post(url, formData, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'multipart/form-data'
         }
       });
@@ -1393,9 +1428,8 @@ const programasPersonalizadosService = {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/${subprogramaId}/pasos`;
       console.log("URL de consulta:", url);
       
-      const response = await axios.get(url, {
+      const response = await axiosInstance.get(url, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         }
       });
@@ -1412,9 +1446,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/pasos/${pasoId}`;
       
-      const response = await axios.get(url, {
+      const response = await axiosInstance.get(url, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         }
       });
@@ -1430,9 +1463,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/${subprogramaId}/pasos`;
       
-      const response = await axios.post(url, pasoData, {
+      const response = await axiosInstance.post(url, pasoData, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         }
       });
@@ -1448,9 +1480,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/pasos/${pasoId}`;
       
-      const response = await axios.put(url, pasoData, {
+      const response = await axiosInstance.put(url, pasoData, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'application/json'
         }
       });
@@ -1466,11 +1497,7 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/pasos/${pasoId}`;
       
-      const response = await axios.delete(url, {
-        headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`
-        }
-      });
+      const response = await axiosInstance.delete(url);
       
       return response.data;
     } catch (error) {
@@ -1483,9 +1510,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/pasos/${pasoId}/video`;
       
-      const response = await axios.post(url, formData, {
+      const response = await axiosInstance.post(url, formData, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'multipart/form-data'
         }
       });
@@ -1501,9 +1527,8 @@ const programasPersonalizadosService = {
     try {
       const url = `${axiosInstance.defaults.baseURL}/programas-personalizados/subprogramas/pasos/${pasoId}/imagenes`;
       
-      const response = await axios.post(url, formData, {
+      const response = await axiosInstance.post(url, formData, {
         headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
           'Content-Type': 'multipart/form-data'
         }
       });
@@ -1,9 +1,9 @@
+import axiosInstance from '../api';
+
 // Obtener programas compartidos con el paciente y sus comentarios
 const getProgramasCompartidosConPaciente = async (pacienteId) => {
   try {
-    const response = await axios.get(`${API_URL}/pacientes/${pacienteId}/programas-compartidos`, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.get(`/pacientes/${pacienteId}/programas-compartidos`);
     return response.data;
   } catch (error) {
     console.error('Error al obtener programas compartidos con el paciente:', error);
@@ -1,13 +1,11 @@
 import axios from 'axios';
 import { API_URL } from '../../config';
-import { authHeaders } from './authService';
+import axiosInstance from '../api';
 
 // Obtener todos los programas personalizados
 const getProgramas = async () => {
   try {
-    const response = await axios.get(`${API_URL}/programas-personalizados`, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.get(`/programas-personalizados`);
     return response.data;
   } catch (error) {
     console.error('Error al obtener programas:', error);
@@ -18,9 +16,7 @@ const getProgramas = async () => {
 // Obtener un programa por su ID
 const getProgramaById = async (id) => {
   try {
-    const response = await axios.get(`${API_URL}/programas-personalizados/${id}`, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.get(`/programas-personalizados/${id}`);
     return response.data;
   } catch (error) {
     console.error('Error al obtener programa:', error);
@@ -31,9 +27,7 @@ const getProgramaById = async (id) => {
 // Crear un nuevo programa personalizado
 const createPrograma = async (programaData) => {
   try {
-    const response = await axios.post(`${API_URL}/programas-personalizados`, programaData, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.post(`/programas-personalizados`, programaData);
     return response.data;
   } catch (error) {
     console.error('Error al crear programa:', error);
@@ -44,9 +38,7 @@ const createPrograma = async (programaData) => {
 // Actualizar un programa existente
 const updatePrograma = async (id, programaData) => {
   try {
-    const response = await axios.put(`${API_URL}/programas-personalizados/${id}`, programaData, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.put(`/programas-personalizados/${id}`, programaData);
     return response.data;
   } catch (error) {
     console.error('Error al actualizar programa:', error);
@@ -57,9 +49,7 @@ const updatePrograma = async (id, programaData) => {
 // Eliminar un programa
 const deletePrograma = async (id) => {
   try {
-    const response = await axios.delete(`${API_URL}/programas-personalizados/${id}`, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.delete(`/programas-personalizados/${id}`);
     return response.data;
   } catch (error) {
     console.error('Error al eliminar programa:', error);
@@ -70,9 +60,7 @@ const deletePrograma = async (id) => {
 // Verificar si un programa puede ser eliminado
 const puedeEliminarPrograma = async (programaId) => {
   try {
-    const response = await axios.get(`${API_URL}/programas-personalizados/${programaId}/puede-eliminar`, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.get(`/programas-personalizados/${programaId}/puede-eliminar`);
     return response.data;
   } catch (error) {
     console.error('Error al verificar si se puede eliminar el programa:', error);
@@ -83,9 +71,7 @@ const puedeEliminarPrograma = async (programaId) => {
 // Obtener subprogramas de un programa
 const getSubprogramasByProgramaId = async (programaId) => {
   try {
-    const response = await axios.get(`${API_URL}/programas-personalizados/${programaId}/subprogramas`, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.get(`/programas-personalizados/${programaId}/subprogramas`);
     return response.data;
   } catch (error) {
     console.error('Error al obtener subprogramas:', error);
@@ -96,9 +82,7 @@ const getSubprogramasByProgramaId = async (programaId) => {
 // Crear un nuevo subprograma
 const createSubprograma = async (programaId, subprogramaData) => {
   try {
-    const response = await axios.post(`${API_URL}/programas-personalizados/${programaId}/subprogramas`, subprogramaData, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.post(`/programas-personalizados/${programaId}/subprogramas`, subprogramaData);
     return response.data;
   } catch (error) {
     console.error('Error al crear subprograma:', error);
@@ -109,9 +93,7 @@ const createSubprograma = async (programaId, subprogramaData) => {
 // Actualizar un subprograma
 const updateSubprograma = async (programaId, subprogramaId, subprogramaData) => {
   try {
-    const response = await axios.put(`${API_URL}/programas-personalizados/${programaId}/subprogramas/${subprogramaId}`, subprogramaData, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.put(`/programas-personalizados/${programaId}/subprogramas/${subprogramaId}`, subprogramaData);
     return response.data;
   } catch (error) {
     console.error('Error al actualizar subprograma:', error);
@@ -122,9 +104,7 @@ const updateSubprograma = async (programaId, subprogramaId, subprogramaData) =>
 // Eliminar un subprograma
 const deleteSubprograma = async (programaId, subprogramaId) => {
   try {
-    const response = await axios.delete(`${API_URL}/programas-personalizados/${programaId}/subprogramas/${subprogramaId}`, { 
-      headers: authHeaders() 
-    });
+    const response = await axiosInstance.delete(`/programas-personalizados/${programaId}/subprogramas/${subprogramaId}`);
     return response.data;
   } catch (error) {
     console.error('Error al eliminar subprograma:', error);
@@ -135,10 +115,8 @@ const deleteSubprograma = async (programaId, subprogramaId) => {
 // Generar tokens para múltiples pacientes
 const generarTokensParaPacientes = async (programaId, pacientesIds) => {
   try {
-    const response = await axios.post(`${API_URL}/programas-personalizados/${programaId}/generar-tokens`, 
-      { pacientesIds }, 
-      { headers: authHeaders() }
-    );
+    const response = await axiosInstance.post(`/programas-personalizados/${programaId}/generar-tokens`, 
+      { pacientesIds });
     return response.data;
   } catch (error) {
     console.error('Error al generar tokens:', error);